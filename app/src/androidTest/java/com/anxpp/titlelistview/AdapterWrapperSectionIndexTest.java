@@ -0,0 +1,181 @@
+package com.anxpp.titlelistview;
+
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+import com.anxpp.titlelistview.sectioning.SectionIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Applies random bursts of item range changes through an {@link AdapterWrapper}
+ * and checks that its patched section index matches one built from scratch.
+ * Half of the bursts post all their changes only after the data was mutated
+ * for the whole burst, as an adapter applying a batch does.
+ */
+public class AdapterWrapperSectionIndexTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+    private static final int CHANGED = 0;
+    private static final int INSERTED = 1;
+    private static final int REMOVED = 2;
+    private static final int MOVED = 3;
+
+    public AdapterWrapperSectionIndexTest() {
+        super(MainActivity.class);
+    }
+
+    public void testPatchedIndexMatchesARebuild() {
+        final Random random = new Random(7);
+        for (int iteration = 0; iteration < 300; iteration++) {
+            final RangeAdapter adapter = new RangeAdapter(random.nextInt(40), random);
+            final AdapterWrapper wrapper = new AdapterWrapper(getInstrumentation().getTargetContext(), adapter);
+            // the first call builds the index, later ones patch it
+            check(wrapper, adapter);
+            for (int burst = 0; burst < 20; burst++) {
+                final boolean postAfterBatch = random.nextBoolean();
+                final int changes = 1 + random.nextInt(5);
+                for (int i = 0; i < changes; i++) {
+                    adapter.change(random, !postAfterBatch);
+                }
+                if (postAfterBatch) {
+                    adapter.postPending();
+                }
+                check(wrapper, adapter);
+            }
+        }
+    }
+
+    private static void check(AdapterWrapper wrapper, RangeAdapter adapter) {
+        final SectionIndex expected = new SectionIndex();
+        for (long headerId : adapter.mHeaderIds) {
+            expected.append(headerId);
+        }
+        final SectionIndex actual = wrapper.getSectionIndex();
+        assertEquals(expected.getItemCount(), actual.getItemCount());
+        assertEquals(expected.getSectionCount(), actual.getSectionCount());
+        for (int section = 0; section < expected.getSectionCount(); section++) {
+            assertEquals("start of section " + section,
+                    expected.getPositionForSection(section), actual.getPositionForSection(section));
+            assertEquals("header id of section " + section,
+                    expected.getHeaderIdForSection(section), actual.getHeaderIdForSection(section));
+        }
+    }
+
+    private static class RangeAdapter extends BaseAdapter implements ItemRangeNotifyingAdapter {
+
+        private final ItemRangeObservable mObservable = new ItemRangeObservable();
+        final List<Long> mHeaderIds = new ArrayList<>();
+        // changes applied to the data but not posted yet, {kind, start, count, to}
+        private final List<int[]> mPending = new ArrayList<>();
+
+        RangeAdapter(int count, Random random) {
+            for (int i = 0; i < count; i++) {
+                mHeaderIds.add(randomHeaderId(random));
+            }
+        }
+
+        // few distinct ids, so changed rows often join or split the sections around them
+        private static long randomHeaderId(Random random) {
+            return random.nextInt(3);
+        }
+
+        void change(Random random, boolean post) {
+            final int count = mHeaderIds.size();
+            final int kind = count == 0 ? INSERTED : random.nextInt(4);
+            final int start = random.nextInt(kind == INSERTED ? count + 1 : count);
+            int itemCount = 1 + random.nextInt(kind == INSERTED ? 4 : Math.min(count - start, 4));
+            int to = 0;
+            switch (kind) {
+                case CHANGED:
+                    for (int i = start; i < start + itemCount; i++) {
+                        mHeaderIds.set(i, randomHeaderId(random));
+                    }
+                    break;
+                case INSERTED:
+                    for (int i = 0; i < itemCount; i++) {
+                        mHeaderIds.add(start, randomHeaderId(random));
+                    }
+                    break;
+                case REMOVED:
+                    mHeaderIds.subList(start, start + itemCount).clear();
+                    break;
+                default: {
+                    // toPosition counts without the moved rows
+                    final List<Long> moved = new ArrayList<>(mHeaderIds.subList(start, start + itemCount));
+                    mHeaderIds.subList(start, start + itemCount).clear();
+                    to = random.nextInt(mHeaderIds.size() + 1);
+                    mHeaderIds.addAll(to, moved);
+                    break;
+                }
+            }
+            mPending.add(new int[]{kind, start, itemCount, to});
+            if (post) {
+                postPending();
+            }
+        }
+
+        void postPending() {
+            for (int[] change : mPending) {
+                switch (change[0]) {
+                    case CHANGED:
+                        mObservable.notifyItemRangeChanged(change[1], change[2]);
+                        break;
+                    case INSERTED:
+                        mObservable.notifyItemRangeInserted(change[1], change[2]);
+                        break;
+                    case REMOVED:
+                        mObservable.notifyItemRangeRemoved(change[1], change[2]);
+                        break;
+                    default:
+                        mObservable.notifyItemRangeMoved(change[1], change[3], change[2]);
+                        break;
+                }
+            }
+            mPending.clear();
+        }
+
+        @Override
+        public void registerItemRangeObserver(ItemRangeObserver observer) {
+            mObservable.registerObserver(observer);
+        }
+
+        @Override
+        public void unregisterItemRangeObserver(ItemRangeObserver observer) {
+            mObservable.unregisterObserver(observer);
+        }
+
+        @Override
+        public int getCount() {
+            return mHeaderIds.size();
+        }
+
+        @Override
+        public Long getItem(int position) {
+            return mHeaderIds.get(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            throw new UnsupportedOperationException("not bound in this test");
+        }
+
+        @Override
+        public View getHeaderView(int position, View convertView, ViewGroup parent) {
+            throw new UnsupportedOperationException("not bound in this test");
+        }
+
+        @Override
+        public long getHeaderId(int position) {
+            return mHeaderIds.get(position);
+        }
+    }
+}
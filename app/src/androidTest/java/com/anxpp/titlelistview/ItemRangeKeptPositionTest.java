@@ -0,0 +1,155 @@
+package com.anxpp.titlelistview;
+
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies several item range changes before the list lays out again and checks
+ * that the first visible row keeps its offset instead of snapping to the top.
+ */
+public class ItemRangeKeptPositionTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+    private static final int ROW_HEIGHT = 100;
+    private static final int FIRST_VISIBLE = 20;
+    private static final int FIRST_VISIBLE_TOP = -37;
+
+    private StickyListHeadersListView mList;
+    private RangeAdapter mAdapter;
+    private int mFirstVisibleItem;
+    private int mFirstVisibleTop;
+
+    public ItemRangeKeptPositionTest() {
+        super(MainActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mList = getActivity().wrapperViewList;
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mAdapter = new RangeAdapter(200);
+                mList.setAdapter(mAdapter);
+                mList.getWrappedList().setSelectionFromTop(FIRST_VISIBLE, FIRST_VISIBLE_TOP);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    public void testTwoRangeChangesBeforeOneLayoutKeepTheOffset() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final WrapperViewList wrappedList = mList.getWrappedList();
+                mFirstVisibleItem = wrappedList.getFirstVisiblePosition();
+                mFirstVisibleTop = wrappedList.getChildAt(0).getTop();
+                // two inserted and one removed above the first visible row, no layout in between
+                mAdapter.insert(0, 2);
+                mAdapter.remove(0, 1);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final WrapperViewList wrappedList = mList.getWrappedList();
+                assertEquals(mFirstVisibleItem + 1, wrappedList.getFirstVisiblePosition());
+                assertEquals(mFirstVisibleTop, wrappedList.getChildAt(0).getTop());
+            }
+        });
+    }
+
+    private class RangeAdapter extends BaseAdapter implements ItemRangeNotifyingAdapter {
+
+        private final ItemRangeObservable mObservable = new ItemRangeObservable();
+        private final List<Integer> mItems = new ArrayList<>();
+        private int mNextItem;
+
+        RangeAdapter(int count) {
+            for (; mNextItem < count; mNextItem++) {
+                mItems.add(mNextItem);
+            }
+        }
+
+        void insert(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                mItems.add(position + i, mNextItem++);
+            }
+            mObservable.notifyItemRangeInserted(position, count);
+        }
+
+        void remove(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                mItems.remove(position);
+            }
+            mObservable.notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void registerItemRangeObserver(ItemRangeObserver observer) {
+            mObservable.registerObserver(observer);
+        }
+
+        @Override
+        public void unregisterItemRangeObserver(ItemRangeObserver observer) {
+            mObservable.unregisterObserver(observer);
+        }
+
+        @Override
+        public int getCount() {
+            return mItems.size();
+        }
+
+        @Override
+        public Integer getItem(int position) {
+            return mItems.get(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return mItems.get(position);
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            TextView view = (TextView) convertView;
+            if (view == null) {
+                view = new TextView(parent.getContext());
+                view.setLayoutParams(new AbsListView.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ROW_HEIGHT));
+            }
+            view.setText(String.valueOf(getItem(position)));
+            return view;
+        }
+
+        @Override
+        public View getHeaderView(int position, View convertView, ViewGroup parent) {
+            TextView view = (TextView) convertView;
+            if (view == null) {
+                view = new TextView(parent.getContext());
+            }
+            view.setText(String.valueOf(getHeaderId(position)));
+            return view;
+        }
+
+        // one header for the whole list, so no header changes the row heights
+        @Override
+        public long getHeaderId(int position) {
+            return 0;
+        }
+    }
+}
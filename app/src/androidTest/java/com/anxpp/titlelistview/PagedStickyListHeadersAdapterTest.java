@@ -0,0 +1,220 @@
+package com.anxpp.titlelistview;
+
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Drives a {@link PagedStickyListHeadersAdapter} with an executor that only
+ * runs the queued page loads when the test says so, and checks which pages
+ * are requested, kept and dropped.
+ */
+public class PagedStickyListHeadersAdapterTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int WINDOW_PAGES = 3;
+    private static final int ITEM_COUNT = 100;
+
+    private final QueueExecutor mExecutor = new QueueExecutor();
+    private final RecordingLoader mLoader = new RecordingLoader();
+    private TestAdapter mAdapter;
+    private int mChangedRanges;
+
+    public PagedStickyListHeadersAdapterTest() {
+        super(MainActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mAdapter = new TestAdapter();
+                mAdapter.registerItemRangeObserver(new ItemRangeObserver() {
+                    @Override
+                    public void onItemRangeChanged(int positionStart, int itemCount) {
+                        mChangedRanges++;
+                    }
+                });
+            }
+        });
+    }
+
+    public void testPrefetchFollowsTheVisibleRangeNotTheBindOrder() {
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                mAdapter.onVisibleRangeChanged(50, 59);
+                // scrolled up by five rows, the rows are still bound top to bottom
+                mAdapter.onVisibleRangeChanged(45, 54);
+                for (int position = 45; position <= 54; position++) {
+                    mAdapter.getView(position, null, null);
+                }
+            }
+        });
+        loadQueuedPages();
+
+        assertTrue("page above the visible rows prefetched", mLoader.requested(3));
+        assertTrue(mLoader.requested(4));
+        assertTrue(mLoader.requested(5));
+        assertFalse("page below the visible rows prefetched", mLoader.requested(6));
+    }
+
+    public void testEvictsThePageFarthestFromTheBoundRow() {
+        bind(0);
+        loadQueuedPages();
+        // binds page 2 and prefetches page 3 into a window of three pages
+        bind(20);
+        loadQueuedPages();
+
+        assertFalse(mAdapter.isLoaded(0));
+        assertTrue(mAdapter.isLoaded(10));
+        assertTrue(mAdapter.isLoaded(20));
+        assertTrue(mAdapter.isLoaded(30));
+    }
+
+    public void testPagesLoadedForOlderDataAreDropped() {
+        bind(0);
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                mAdapter.invalidate();
+            }
+        });
+        loadQueuedPages();
+
+        assertFalse(mAdapter.isLoaded(0));
+        assertEquals(0, mChangedRanges);
+
+        // the slots of the dropped loads are free again
+        bind(0);
+        loadQueuedPages();
+        assertTrue(mAdapter.isLoaded(0));
+        assertEquals(2, mLoader.loadCount(0));
+    }
+
+    public void testAFailedLoadIsRequestedAgain() {
+        mLoader.mFailingPage = 0;
+        bind(0);
+        loadQueuedPages();
+
+        assertFalse(mAdapter.isLoaded(0));
+        assertTrue("the prefetched page still loads", mAdapter.isLoaded(PAGE_SIZE));
+        assertEquals(1, mChangedRanges);
+
+        mLoader.mFailingPage = -1;
+        bind(0);
+        loadQueuedPages();
+        assertTrue(mAdapter.isLoaded(0));
+        assertEquals(2, mLoader.loadCount(0));
+    }
+
+    private void bind(final int position) {
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                mAdapter.getView(position, null, null);
+            }
+        });
+    }
+
+    private void onMain(Runnable runnable) {
+        getInstrumentation().runOnMainSync(runnable);
+    }
+
+    // runs the loads on the test thread, then lets the main thread take the posted pages
+    private void loadQueuedPages() {
+        mExecutor.runAll();
+        getInstrumentation().waitForIdleSync();
+    }
+
+    private static final class QueueExecutor implements Executor {
+
+        private final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            final List<Runnable> tasks;
+            synchronized (this) {
+                tasks = new ArrayList<>(mTasks);
+                mTasks.clear();
+            }
+            for (Runnable task : tasks) {
+                try {
+                    task.run();
+                } catch (IllegalStateException e) {
+                    // a failed load, as a thread pool would log it
+                }
+            }
+        }
+    }
+
+    private static final class RecordingLoader implements PageLoader<Integer> {
+
+        private final List<Integer> mLoadedOffsets = new ArrayList<>();
+        volatile int mFailingPage = -1;
+
+        @Override
+        public int getItemCount() {
+            return ITEM_COUNT;
+        }
+
+        @Override
+        public synchronized List<Integer> loadPage(int offset, int count) {
+            mLoadedOffsets.add(offset);
+            if (offset == mFailingPage * PAGE_SIZE) {
+                throw new IllegalStateException("page " + mFailingPage + " failed");
+            }
+            final List<Integer> items = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                items.add(offset + i);
+            }
+            return items;
+        }
+
+        synchronized boolean requested(int page) {
+            return mLoadedOffsets.contains(page * PAGE_SIZE);
+        }
+
+        synchronized int loadCount(int page) {
+            int count = 0;
+            for (int offset : mLoadedOffsets) {
+                if (offset == page * PAGE_SIZE) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private class TestAdapter extends PagedStickyListHeadersAdapter<Integer> {
+
+        TestAdapter() {
+            super(mLoader, mExecutor, PAGE_SIZE, WINDOW_PAGES);
+        }
+
+        @Override
+        protected long getItemHeaderId(Integer item) {
+            return item / 25;
+        }
+
+        @Override
+        protected View getItemView(Integer item, View convertView, ViewGroup parent) {
+            return convertView != null ? convertView : new View(getInstrumentation().getTargetContext());
+        }
+
+        @Override
+        protected View getItemHeaderView(Integer item, View convertView, ViewGroup parent) {
+            return getItemView(item, convertView, parent);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.anxpp.titlelistview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.os.Debug;
+import android.test.ActivityInstrumentationTestCase2;
+
+/**
+ * Scrolls the list of {@link MainActivity} in small steps and checks that the
+ * per frame work, the sticky header update before drawing and the draw pass
+ * itself, does not allocate.
+ */
+public class WrapperViewListAllocationTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+    private static final int SCROLL_STEPS = 200;
+    private static final int SCROLL_STEP_PX = 7;
+
+    private int mAllocations;
+
+    public WrapperViewListAllocationTest() {
+        super(MainActivity.class);
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testScrollingDrawDoesNotAllocate() throws Throwable {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            // scrollListBy() is needed to script the scroll
+            return;
+        }
+        final StickyListHeadersListView list = getActivity().wrapperViewList;
+        getInstrumentation().waitForIdleSync();
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final WrapperViewList wrappedList = list.getWrappedList();
+                final Bitmap bitmap = Bitmap.createBitmap(list.getWidth(), list.getHeight(),
+                        Bitmap.Config.ARGB_8888);
+                final Canvas canvas = new Canvas(bitmap);
+
+                // one untracked frame so lazily created state already exists
+                wrappedList.scrollListBy(SCROLL_STEP_PX);
+                drawFrame(list, canvas);
+
+                mAllocations = 0;
+                for (int i = 0; i < SCROLL_STEPS; i++) {
+                    // binding rows that scroll in is the adapters business, not counted
+                    wrappedList.scrollListBy(SCROLL_STEP_PX);
+                    Debug.resetThreadAllocCount();
+                    Debug.startAllocCounting();
+                    drawFrame(list, canvas);
+                    Debug.stopAllocCounting();
+                    mAllocations += Debug.getThreadAllocCount();
+                }
+                bitmap.recycle();
+            }
+        });
+
+        assertEquals("allocations while drawing " + SCROLL_STEPS + " frames", 0, mAllocations);
+    }
+
+    private static void drawFrame(StickyListHeadersListView list, Canvas canvas) {
+        list.getViewTreeObserver().dispatchOnPreDraw();
+        list.draw(canvas);
+    }
+}
@@ -6,35 +6,194 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 
-import java.util.LinkedList;
-import java.util.List;
+import com.anxpp.titlelistview.sectioning.SectionIndex;
 
 /**
  */
-class AdapterWrapper extends BaseAdapter implements StickyListHeadersAdapter {
+class AdapterWrapper extends BaseAdapter
+		implements HeaderViewTypesAdapter, ItemRangeNotifyingAdapter {
 
 	StickyListHeadersAdapter stickyListHeadersAdapter;
-	private final List<View> mHeaderCache = new LinkedList<>();
+	private final HeaderViewPool mHeaderPool;
+	// rows inflated ahead of time, keyed by item view type, handed out before new ones are created
+	private final SpareRows mSpareRows;
 	private final Context mContext;
+	// section starts of the delegate, rebuilt lazily after every data set change
+	private final SectionIndex mSectionIndex = new SectionIndex();
+	private boolean mSectionIndexValid = false;
+	// range of the section index replaced by item range changes not applied yet, -1 if none
+	private int mPendingStart = -1;
+	private int mPendingRemovedCount;
+	private int mPendingInsertedCount;
+	// non-null if the delegate maintains the section index itself
+	private final SectionIndexProvider mSectionIndexProvider;
+	// scratch buffer the header ids are fetched into while building the index
+	private static final int HEADER_ID_CHUNK = 256;
+	private final long[] mHeaderIdBuffer = new long[HEADER_ID_CHUNK];
+	// header heights shared by the WrapperViews and the sticky header
+	private final HeaderMeasureCache mHeaderMeasureCache = new HeaderMeasureCache();
+	private final ItemRangeObservable mItemRangeObservable = new ItemRangeObservable();
+	// true while the list is told about an item range change of the delegate
+	private boolean mDispatchingItemRangeChange = false;
+	// null while metrics are disabled
+	private MetricsRecorder mMetrics;
+	// null while row heights are not recorded
+	private RowHeightCache mRowHeightCache;
 
 	AdapterWrapper(Context context,
 				   StickyListHeadersAdapter delegate) {
+		this(context, delegate, HeaderViewPool.DEFAULT_CAPACITY);
+	}
+
+	AdapterWrapper(Context context,
+				   StickyListHeadersAdapter delegate, int headerPoolCapacity) {
 		this.mContext = context;
+		this.mHeaderPool = new HeaderViewPool(headerPoolCapacity, getHeaderViewTypeCount(delegate));
+		this.mSpareRows = new SpareRows(delegate.getViewTypeCount());
 		this.stickyListHeadersAdapter = delegate;
+		this.mSectionIndexProvider = delegate instanceof SectionIndexProvider
+				? (SectionIndexProvider) delegate : null;
 		DataSetObserver mDataSetObserver = new DataSetObserver() {
 
 			@Override
 			public void onInvalidated() {
-				mHeaderCache.clear();
+				mSectionIndexValid = false;
+				mHeaderPool.clear();
+				mSpareRows.clear();
+				mHeaderMeasureCache.clear();
+				if (mRowHeightCache != null) {
+					mRowHeightCache.onDataSetChanged();
+				}
+				onDelegateDataChanged();
 				AdapterWrapper.super.notifyDataSetInvalidated();
 			}
 
 			@Override
 			public void onChanged() {
+				mSectionIndexValid = false;
+				if (mRowHeightCache != null) {
+					mRowHeightCache.onDataSetChanged();
+				}
+				onDelegateDataChanged();
 				AdapterWrapper.super.notifyDataSetChanged();
 			}
 		};
 		delegate.registerDataSetObserver(mDataSetObserver);
+		if (delegate instanceof ItemRangeNotifyingAdapter) {
+			((ItemRangeNotifyingAdapter) delegate).registerItemRangeObserver(new ItemRangeObserver() {
+
+				@Override
+				public void onItemRangeChanged(int positionStart, int itemCount) {
+					patchSectionIndex(positionStart, itemCount, itemCount);
+					patchRowHeights(positionStart, itemCount, itemCount);
+					mItemRangeObservable.notifyItemRangeChanged(positionStart, itemCount);
+					dispatchItemRangeChange();
+				}
+
+				@Override
+				public void onItemRangeInserted(int positionStart, int itemCount) {
+					patchSectionIndex(positionStart, 0, itemCount);
+					patchRowHeights(positionStart, 0, itemCount);
+					mItemRangeObservable.notifyItemRangeInserted(positionStart, itemCount);
+					dispatchItemRangeChange();
+				}
+
+				@Override
+				public void onItemRangeRemoved(int positionStart, int itemCount) {
+					patchSectionIndex(positionStart, itemCount, 0);
+					patchRowHeights(positionStart, itemCount, 0);
+					mItemRangeObservable.notifyItemRangeRemoved(positionStart, itemCount);
+					dispatchItemRangeChange();
+				}
+
+				@Override
+				public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+					patchSectionIndex(fromPosition, itemCount, 0);
+					patchSectionIndex(toPosition, 0, itemCount);
+					if (mRowHeightCache != null) {
+						mRowHeightCache.onItemRangeMoved(fromPosition, toPosition, itemCount);
+					}
+					mItemRangeObservable.notifyItemRangeMoved(fromPosition, toPosition, itemCount);
+					dispatchItemRangeChange();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Records that {@code removedCount} positions starting at {@code start} were
+	 * replaced with {@code insertedCount} positions. The changes of a burst are
+	 * merged into one pending range whose header ids are read from the delegate
+	 * by {@link #getSectionIndex()}, after the burst, since the delegate may post
+	 * several changes after mutating its data once. An index that is already
+	 * stale is left for the next full rebuild.
+	 */
+	private void patchSectionIndex(int start, int removedCount, int insertedCount) {
+		if (mSectionIndexProvider != null || !mSectionIndexValid) {
+			return;
+		}
+		final boolean pending = mPendingStart >= 0;
+		final int count = mSectionIndex.getItemCount()
+				+ (pending ? mPendingInsertedCount - mPendingRemovedCount : 0);
+		if (start < 0 || removedCount < 0 || insertedCount < 0 || start + removedCount > count) {
+			mSectionIndexValid = false;
+			return;
+		}
+		if (!pending) {
+			mPendingStart = start;
+			mPendingRemovedCount = removedCount;
+			mPendingInsertedCount = insertedCount;
+			return;
+		}
+		// positions past the pending range map back to the index by the size change so far
+		final int mergedStart = Math.min(mPendingStart, start);
+		final int mergedEnd = Math.max(mPendingStart + mPendingInsertedCount, start + removedCount);
+		mPendingRemovedCount = mergedEnd - mPendingInsertedCount + mPendingRemovedCount - mergedStart;
+		mPendingInsertedCount = mergedEnd - mergedStart - removedCount + insertedCount;
+		mPendingStart = mergedStart;
+	}
+
+	// changed rows are measured again when they are bound, until then they are estimated
+	private void patchRowHeights(int start, int removedCount, int insertedCount) {
+		if (mRowHeightCache != null) {
+			mRowHeightCache.onItemRangeReplaced(start, removedCount, insertedCount);
+		}
+	}
+
+	/**
+	 * Lets the list pick up an item range change. The list only knows about
+	 * whole data set changes, observers of the wrapper can check
+	 * {@link #isDispatchingItemRangeChange()} to tell the two apart.
+	 */
+	private void dispatchItemRangeChange() {
+		onDelegateDataChanged();
+		mDispatchingItemRangeChange = true;
+		try {
+			super.notifyDataSetChanged();
+		} finally {
+			mDispatchingItemRangeChange = false;
+		}
+	}
+
+	/**
+	 * Called whenever the data of the delegate changed, before the list is
+	 * told about it. Subclasses drop whatever they derived from the data.
+	 */
+	void onDelegateDataChanged() {
+	}
+
+	boolean isDispatchingItemRangeChange() {
+		return mDispatchingItemRangeChange;
+	}
+
+	@Override
+	public void registerItemRangeObserver(ItemRangeObserver observer) {
+		mItemRangeObservable.registerObserver(observer);
+	}
+
+	@Override
+	public void unregisterItemRangeObserver(ItemRangeObserver observer) {
+		mItemRangeObservable.unregisterObserver(observer);
 	}
 
 	@Override
@@ -88,50 +247,219 @@ class AdapterWrapper extends BaseAdapter implements StickyListHeadersAdapter {
 	private void recycleHeaderIfExists(WrapperView wv) {
 		View header = wv.mHeader;
 		if (header != null) {
-			// reset the headers visibility when adding it to the cache
+			// reset the headers visibility when adding it to the pool
 			header.setVisibility(View.VISIBLE);
-			mHeaderCache.add(header);
+			mHeaderPool.release(header, wv.mHeaderViewType);
 		}
 	}
 
 	/**
 	 * Get a header view. This optionally pulls a header from the supplied
-	 * {@link WrapperView} and will also recycle the divider if it exists.
+	 * {@link WrapperView} if it has the right type, otherwise the header of the
+	 * {@link WrapperView} is recycled and one of the right type is popped.
 	 */
-	private View configureHeader(WrapperView wv, final int position) {
-		View header = wv.mHeader == null ? popHeader() : wv.mHeader;
-		header = stickyListHeadersAdapter.getHeaderView(position, header, wv);
+	private View configureHeader(WrapperView wv, final int position, final int headerViewType) {
+		View header = wv.mHeader;
+		if (header != null && wv.mHeaderViewType != headerViewType) {
+			recycleHeaderIfExists(wv);
+			header = null;
+		}
+		if (header == null) {
+			header = popHeader(headerViewType);
+		}
+		header = getHeaderView(position, header, wv);
 		if (header == null) {
 			throw new NullPointerException("Header view must not be null.");
 		}
 		return header;
 	}
 
-	private View popHeader() {
-		if(mHeaderCache.size() > 0) {
-			return mHeaderCache.remove(0);
+	private View popHeader(int headerViewType) {
+		final View header = mHeaderPool.acquire(headerViewType);
+		if (mMetrics != null) {
+			if (header != null) {
+				mMetrics.headerPoolHitCount++;
+			} else {
+				mMetrics.headerPoolMissCount++;
+			}
+		}
+		return header;
+	}
+
+	/**
+	 * Tells a delegate implementing {@link VisibleRangeAwareAdapter} which of
+	 * its positions are visible, {@code firstPosition} may be negative and the
+	 * range may reach past the end while list header or footer views are shown.
+	 */
+	void onVisibleRangeChanged(int firstPosition, int visibleCount) {
+		if (!(stickyListHeadersAdapter instanceof VisibleRangeAwareAdapter)) {
+			return;
+		}
+		final int count = stickyListHeadersAdapter.getCount();
+		final int first = Math.max(firstPosition, 0);
+		final int last = Math.min(firstPosition + visibleCount, count) - 1;
+		if (first <= last) {
+			((VisibleRangeAwareAdapter) stickyListHeadersAdapter).onVisibleRangeChanged(first, last);
+		}
+	}
+
+	void setMetrics(MetricsRecorder metrics) {
+		mMetrics = metrics;
+		mHeaderMeasureCache.setMetrics(metrics);
+	}
+
+	/**
+	 * Inflates the header of {@code position} and puts it into the header
+	 * pool. Returns {@code false} if the pool for its type is already full.
+	 */
+	boolean preInflateHeader(int position, ViewGroup parent) {
+		final int headerViewType = getHeaderViewType(position);
+		if (mHeaderPool.size(headerViewType) >= mHeaderPool.getCapacity()) {
+			return false;
+		}
+		final View header = getHeaderView(position, null, parent);
+		return header != null && mHeaderPool.release(header, headerViewType);
+	}
+
+	/**
+	 * Inflates the row of {@code position} inside a {@link WrapperView} that
+	 * {@link #getView(int, View, ViewGroup)} hands out before creating a new
+	 * one, which makes up for not being able to seed the private recycler of
+	 * the list. Returns {@code false} if no more rows of its type are kept.
+	 */
+	boolean preInflateRow(int position, ViewGroup parent) {
+		final int itemViewType = stickyListHeadersAdapter.getItemViewType(position);
+		if (mSpareRows.isFull(itemViewType)) {
+			return false;
+		}
+		final WrapperView wrapperView = new WrapperView(mContext);
+		wrapperView.mHeaderMeasureCache = mHeaderMeasureCache;
+		wrapperView.update(stickyListHeadersAdapter.getView(position, null, parent), null, 0, 0);
+		return mSpareRows.add(wrapperView, itemViewType);
+	}
+
+	/** Sets how many pre-inflated rows are kept per item view type. */
+	void setSpareRowCapacity(int capacity) {
+		mSpareRows.setCapacity(capacity);
+	}
+
+	/**
+	 * Makes the rows bound from now on record their measured heights in
+	 * {@code cache}, {@code null} stops recording.
+	 */
+	void setRowHeightCache(RowHeightCache cache) {
+		mRowHeightCache = cache;
+		if (cache != null) {
+			cache.setAdapter(this);
+		}
+	}
+
+	RowHeightCache getRowHeightCache() {
+		return mRowHeightCache;
+	}
+
+	HeaderMeasureCache getHeaderMeasureCache() {
+		return mHeaderMeasureCache;
+	}
+
+	HeaderViewPool getHeaderPool() {
+		return mHeaderPool;
+	}
+
+	/**
+	 * Returns the section index of the delegate, building it first if the data
+	 * set changed since it was last used. Returns {@code null} if the delegate
+	 * is a {@link SectionIndexProvider} whose index is not ready yet.
+	 */
+	SectionIndex getSectionIndex() {
+		final int count = stickyListHeadersAdapter.getCount();
+		if (mSectionIndexProvider != null) {
+			final SectionIndex provided = mSectionIndexProvider.getSectionIndex();
+			return provided != null && provided.getItemCount() == count ? provided : null;
+		}
+		if (mSectionIndexValid && mPendingStart >= 0) {
+			final long[] headerIds = new long[mPendingInsertedCount];
+			getHeaderIds(stickyListHeadersAdapter, mPendingStart, mPendingStart + mPendingInsertedCount, headerIds);
+			mSectionIndex.replace(mPendingStart, mPendingRemovedCount, headerIds, mPendingInsertedCount);
+		}
+		mPendingStart = -1;
+		if (!mSectionIndexValid || mSectionIndex.getItemCount() != count) {
+			mSectionIndex.clear();
+			for (int from = 0; from < count; from += HEADER_ID_CHUNK) {
+				final int to = Math.min(from + HEADER_ID_CHUNK, count);
+				getHeaderIds(stickyListHeadersAdapter, from, to, mHeaderIdBuffer);
+				for (int i = 0; i < to - from; i++) {
+					mSectionIndex.append(mHeaderIdBuffer[i]);
+				}
+			}
+			mSectionIndexValid = true;
+		}
+		return mSectionIndex;
+	}
+
+	/**
+	 * Fills {@code out} with the header ids of {@code [from, to)}, in one call if
+	 * the adapter implements {@link BulkHeaderIdsAdapter} and one position at a
+	 * time otherwise.
+	 */
+	static void getHeaderIds(StickyListHeadersAdapter adapter, int from, int to, long[] out) {
+		if (adapter instanceof BulkHeaderIdsAdapter) {
+			((BulkHeaderIdsAdapter) adapter).getHeaderIds(from, to, out);
+		} else {
+			for (int i = from; i < to; i++) {
+				out[i - from] = adapter.getHeaderId(i);
+			}
 		}
-		return null;
 	}
 
 	/** Returns {@code true} if the previous position has the same header ID. */
 	private boolean previousPositionHasSameHeader(int position) {
-		return position != 0
-				&& stickyListHeadersAdapter.getHeaderId(position) == stickyListHeadersAdapter
-						.getHeaderId(position - 1);
+		final SectionIndex sectionIndex = getSectionIndex();
+		if (sectionIndex == null) {
+			return position != 0 && stickyListHeadersAdapter.getHeaderId(position)
+					== stickyListHeadersAdapter.getHeaderId(position - 1);
+		}
+		return sectionIndex.previousPositionHasSameHeader(position);
 	}
 
 	@Override
 	public WrapperView getView(int position, View convertView, ViewGroup parent) {
-		WrapperView wrapperView = (convertView == null) ? new WrapperView(mContext) : (WrapperView) convertView;
+		if (mMetrics == null) {
+			return bindWrapperView(position, convertView, parent);
+		}
+		final long start = System.nanoTime();
+		final WrapperView wrapperView = bindWrapperView(position, convertView, parent);
+		mMetrics.rowBindCount++;
+		mMetrics.rowBindNanos += System.nanoTime() - start;
+		return wrapperView;
+	}
+
+	private WrapperView bindWrapperView(int position, View convertView, ViewGroup parent) {
+		WrapperView wrapperView;
+		if (convertView == null) {
+			final int itemViewType = stickyListHeadersAdapter.getItemViewType(position);
+			wrapperView = mSpareRows.acquire(itemViewType);
+			if (wrapperView == null) {
+				wrapperView = new WrapperView(mContext);
+				wrapperView.mHeaderMeasureCache = mHeaderMeasureCache;
+			}
+		} else {
+			wrapperView = (WrapperView) convertView;
+		}
 		View item = stickyListHeadersAdapter.getView(position, wrapperView.mItem, parent);
 		View header = null;
-		if (previousPositionHasSameHeader(position)) {
+		int headerViewType = 0;
+		long headerId = 0;
+		if (previousPositionHasSameHeader(position) || getHeaderId(position) == NO_HEADER_ID) {
 			recycleHeaderIfExists(wrapperView);
 		} else {
-			header = configureHeader(wrapperView, position);
+			headerViewType = getHeaderViewType(position);
+			headerId = getHeaderId(position);
+			header = configureHeader(wrapperView, position, headerViewType);
 		}
-		wrapperView.update(item, header);
+		wrapperView.update(item, header, headerViewType, headerId);
+		wrapperView.mPosition = position;
+		wrapperView.mRowHeightCache = mRowHeightCache;
 		return wrapperView;
 	}
 	@Override
@@ -166,12 +494,40 @@ class AdapterWrapper extends BaseAdapter implements StickyListHeadersAdapter {
 
 	@Override
 	public View getHeaderView(int position, View convertView, ViewGroup parent) {
-		return stickyListHeadersAdapter.getHeaderView(position, convertView, parent);
+		if (mMetrics == null) {
+			return stickyListHeadersAdapter.getHeaderView(position, convertView, parent);
+		}
+		final long start = System.nanoTime();
+		final View header = stickyListHeadersAdapter.getHeaderView(position, convertView, parent);
+		mMetrics.headerBindCount++;
+		mMetrics.headerBindNanos += System.nanoTime() - start;
+		return header;
 	}
 
 	@Override
 	public long getHeaderId(int position) {
-		return stickyListHeadersAdapter.getHeaderId(position);
+		final SectionIndex sectionIndex = getSectionIndex();
+		if (sectionIndex == null) {
+			return stickyListHeadersAdapter.getHeaderId(position);
+		}
+		return sectionIndex.getHeaderId(position);
+	}
+
+	/** Returns 0, the only type, if the delegate does not implement {@link HeaderViewTypesAdapter}. */
+	@Override
+	public int getHeaderViewType(int position) {
+		return stickyListHeadersAdapter instanceof HeaderViewTypesAdapter
+				? ((HeaderViewTypesAdapter) stickyListHeadersAdapter).getHeaderViewType(position) : 0;
+	}
+
+	@Override
+	public int getHeaderViewTypeCount() {
+		return getHeaderViewTypeCount(stickyListHeadersAdapter);
+	}
+
+	private static int getHeaderViewTypeCount(StickyListHeadersAdapter adapter) {
+		return adapter instanceof HeaderViewTypesAdapter
+				? ((HeaderViewTypesAdapter) adapter).getHeaderViewTypeCount() : 1;
 	}
 
 }
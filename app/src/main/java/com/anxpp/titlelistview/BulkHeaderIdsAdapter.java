@@ -0,0 +1,20 @@
+package com.anxpp.titlelistview;
+
+/**
+ * 可选的批量头ID接口
+ * <p>
+ * Adapters backed by arrays or cursors can implement this to hand out the
+ * header ids of a whole range of positions in one call. Adapters that only
+ * implement {@link StickyListHeadersAdapter} keep working, their ids are
+ * fetched one position at a time.
+ *
+ * @author anxpp.com
+ */
+public interface BulkHeaderIdsAdapter extends StickyListHeadersAdapter {
+
+	/**
+	 * Fills {@code out[0 .. to - from)} with the header ids of the positions
+	 * {@code from} (inclusive) to {@code to} (exclusive).
+	 */
+	void getHeaderIds(int from, int to, long[] out);
+}
@@ -0,0 +1,147 @@
+package com.anxpp.titlelistview;
+
+import android.view.View;
+import android.view.View.MeasureSpec;
+
+import java.util.Arrays;
+
+/**
+ * Measured header heights keyed by header id and width measure spec, shared
+ * by the headers inside {@link WrapperView}s and the sticky header.
+ * <p>
+ * A header is assumed to have the same height whenever it is bound to the
+ * same header id at the same width. If the content behind a header id changes
+ * its height, the entry has to be dropped with {@link #invalidate(long)}.
+ * Entries are kept in open addressing arrays, so lookups do not allocate.
+ */
+final class HeaderMeasureCache {
+
+	private static final int INITIAL_CAPACITY = 64;
+	// the table is cleared instead of grown beyond this many slots
+	private static final int MAX_CAPACITY = 4096;
+	private static final int EMPTY = -1;
+
+	private long[] mHeaderIds;
+	private int[] mWidthSpecs;
+	// measured height, EMPTY for a free slot
+	private int[] mHeights;
+	private int mSize;
+	// null while metrics are disabled
+	private MetricsRecorder mMetrics;
+
+	HeaderMeasureCache() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		mHeaderIds = new long[capacity];
+		mWidthSpecs = new int[capacity];
+		mHeights = new int[capacity];
+		Arrays.fill(mHeights, EMPTY);
+		mSize = 0;
+	}
+
+	private int slot(long headerId, int widthSpec) {
+		int hash = (int) (headerId ^ (headerId >>> 32)) * 31 + widthSpec;
+		hash ^= hash >>> 16;
+		final int mask = mHeights.length - 1;
+		int slot = hash & mask;
+		while (mHeights[slot] != EMPTY
+				&& (mHeaderIds[slot] != headerId || mWidthSpecs[slot] != widthSpec)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/** Returns the cached height, or -1 if the header was not measured at that width. */
+	int get(long headerId, int widthSpec) {
+		return mHeights[slot(headerId, widthSpec)];
+	}
+
+	void put(long headerId, int widthSpec, int height) {
+		// keep the load factor at or below one half
+		if ((mSize + 1) * 2 > mHeights.length) {
+			if (mHeights.length >= MAX_CAPACITY) {
+				allocate(mHeights.length);
+			} else {
+				rehash(mHeights.length * 2);
+			}
+		}
+		final int slot = slot(headerId, widthSpec);
+		if (mHeights[slot] == EMPTY) {
+			mSize++;
+		}
+		mHeaderIds[slot] = headerId;
+		mWidthSpecs[slot] = widthSpec;
+		mHeights[slot] = height;
+	}
+
+	private void rehash(int capacity) {
+		final long[] headerIds = mHeaderIds;
+		final int[] widthSpecs = mWidthSpecs;
+		final int[] heights = mHeights;
+		allocate(capacity);
+		for (int i = 0; i < heights.length; i++) {
+			if (heights[i] != EMPTY) {
+				put(headerIds[i], widthSpecs[i], heights[i]);
+			}
+		}
+	}
+
+	/** Drops the heights cached for {@code headerId} at all widths. */
+	void invalidate(long headerId) {
+		boolean removed = false;
+		for (int i = 0; i < mHeights.length; i++) {
+			if (mHeights[i] != EMPTY && mHeaderIds[i] == headerId) {
+				mHeights[i] = EMPTY;
+				removed = true;
+			}
+		}
+		if (removed) {
+			// re-insert the rest so no probe sequence is broken by a free slot
+			rehash(mHeights.length);
+		}
+	}
+
+	void clear() {
+		Arrays.fill(mHeights, EMPTY);
+		mSize = 0;
+	}
+
+	void setMetrics(MetricsRecorder metrics) {
+		mMetrics = metrics;
+	}
+
+	/**
+	 * Measures {@code header} bound to {@code headerId}. When the height for this
+	 * id and width is cached and the header already holds that measurement and
+	 * has not requested a layout since, measure() is skipped entirely. Otherwise
+	 * a cached height is passed as an exact height so the header does not have to
+	 * work it out again.
+	 */
+	void measure(View header, long headerId, int widthMeasureSpec, int heightMeasureSpec) {
+		final int cachedHeight = get(headerId, widthMeasureSpec);
+		if (cachedHeight != EMPTY) {
+			if (!header.isLayoutRequested()
+					&& header.getMeasuredWidth() == MeasureSpec.getSize(widthMeasureSpec)
+					&& header.getMeasuredHeight() == cachedHeight) {
+				return;
+			}
+			measure(header, widthMeasureSpec, MeasureSpec.makeMeasureSpec(cachedHeight, MeasureSpec.EXACTLY));
+		} else {
+			measure(header, widthMeasureSpec, heightMeasureSpec);
+			put(headerId, widthMeasureSpec, header.getMeasuredHeight());
+		}
+	}
+
+	private void measure(View header, int widthMeasureSpec, int heightMeasureSpec) {
+		if (mMetrics == null) {
+			header.measure(widthMeasureSpec, heightMeasureSpec);
+			return;
+		}
+		final long start = System.nanoTime();
+		header.measure(widthMeasureSpec, heightMeasureSpec);
+		mMetrics.headerMeasureCount++;
+		mMetrics.headerMeasureNanos += System.nanoTime() - start;
+	}
+}
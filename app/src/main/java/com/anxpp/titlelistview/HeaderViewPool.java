@@ -0,0 +1,135 @@
+package com.anxpp.titlelistview;
+
+import android.view.View;
+
+import java.util.Arrays;
+
+/**
+ * Bounded pool of detached header views, keyed by header view type.
+ * <p>
+ * Every type keeps its headers in a fixed size array used as a stack, so
+ * recycling a header never allocates and a header is only handed out again
+ * for the type it was created for. Headers released while the stack of their
+ * type is full are dropped and left to the garbage collector.
+ */
+final class HeaderViewPool {
+
+	static final int DEFAULT_CAPACITY = 8;
+
+	//one stack per header view type
+	private View[][] mViews;
+	private int[] mSizes;
+	private int mCapacity;
+	private int mHitCount;
+	private int mMissCount;
+
+	HeaderViewPool(int capacity) {
+		this(capacity, 1);
+	}
+
+	/**
+	 * @param capacity  maximum number of pooled headers per type
+	 * @param typeCount number of header view types known up front
+	 */
+	HeaderViewPool(int capacity, int typeCount) {
+		mCapacity = checkCapacity(capacity);
+		mViews = new View[Math.max(typeCount, 1)][];
+		mSizes = new int[mViews.length];
+	}
+
+	private static int checkCapacity(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+		}
+		return capacity;
+	}
+
+	private View[] stackFor(int type) {
+		if (type < 0) {
+			throw new IllegalArgumentException("Header view type must not be negative: " + type);
+		}
+		if (type >= mViews.length) {
+			mViews = Arrays.copyOf(mViews, type + 1);
+			mSizes = Arrays.copyOf(mSizes, type + 1);
+		}
+		if (mViews[type] == null) {
+			mViews[type] = new View[mCapacity];
+		}
+		return mViews[type];
+	}
+
+	/** Returns a pooled header of the given type, or {@code null} if there is none. */
+	View acquire(int type) {
+		final View[] stack = stackFor(type);
+		if (mSizes[type] == 0) {
+			mMissCount++;
+			return null;
+		}
+		mHitCount++;
+		final View header = stack[--mSizes[type]];
+		stack[mSizes[type]] = null;
+		return header;
+	}
+
+	/**
+	 * Puts a header of the given type into the pool. Returns {@code false} if
+	 * the pool for that type was full.
+	 */
+	boolean release(View header, int type) {
+		final View[] stack = stackFor(type);
+		if (mSizes[type] == stack.length) {
+			return false;
+		}
+		stack[mSizes[type]++] = header;
+		return true;
+	}
+
+	/** Drops pooled headers until at most {@code maxSize} remain for every type. */
+	void trim(int maxSize) {
+		for (int type = 0; type < mViews.length; type++) {
+			while (mSizes[type] > maxSize) {
+				mViews[type][--mSizes[type]] = null;
+			}
+		}
+	}
+
+	void clear() {
+		trim(0);
+	}
+
+	void setCapacity(int capacity) {
+		mCapacity = checkCapacity(capacity);
+		trim(capacity);
+		for (int type = 0; type < mViews.length; type++) {
+			if (mViews[type] != null) {
+				mViews[type] = Arrays.copyOf(mViews[type], capacity);
+			}
+		}
+	}
+
+	int getCapacity() {
+		return mCapacity;
+	}
+
+	/** Number of pooled headers over all types. */
+	int size() {
+		int size = 0;
+		for (int typeSize : mSizes) {
+			size += typeSize;
+		}
+		return size;
+	}
+
+	/** Number of pooled headers of the given type. */
+	int size(int type) {
+		return type < mSizes.length ? mSizes[type] : 0;
+	}
+
+	int getHitCount() {
+		return mHitCount;
+	}
+
+	int getMissCount() {
+		return mMissCount;
+	}
+}
@@ -0,0 +1,28 @@
+package com.anxpp.titlelistview;
+
+/**
+ * 可选的多种头布局类型接口
+ * <p>
+ * Adapters whose headers come in different layouts implement this, so header
+ * views are only reused for positions of the same type. Adapters that only
+ * implement {@link StickyListHeadersAdapter} have a single header type.
+ *
+ * @author anxpp.com
+ */
+public interface HeaderViewTypesAdapter extends StickyListHeadersAdapter {
+
+	/**
+	 * Get the type of header view that will be created by {@link #getHeaderView}
+	 * for the specified position. Header views are only reused for positions of
+	 * the same type.
+	 *
+	 * @return An integer in the range 0 to {@link #getHeaderViewTypeCount()} - 1.
+	 */
+	int getHeaderViewType(int position);
+
+	/**
+	 * Returns the number of types of header views that will be created by
+	 * {@link #getHeaderView}.
+	 */
+	int getHeaderViewTypeCount();
+}
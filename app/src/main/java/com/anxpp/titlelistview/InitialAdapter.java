@@ -1,6 +1,9 @@
 package com.anxpp.titlelistview;
 
 import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,21 +11,55 @@ import android.widget.BaseAdapter;
 import android.widget.SectionIndexer;
 import android.widget.TextView;
 
-import java.util.ArrayList;
+import com.anxpp.titlelistview.sectioning.CompactStrings;
+import com.anxpp.titlelistview.sectioning.InitialSections;
+import com.anxpp.titlelistview.sectioning.ParallelSections;
+import com.anxpp.titlelistview.sectioning.PrefixSearch;
+import com.anxpp.titlelistview.sectioning.SectionIndex;
+import com.anxpp.titlelistview.sectioning.SectionKeys;
+
+import java.util.concurrent.Executor;
 
 /**
  * 首字母分类适配器
  */
-public class InitialAdapter extends BaseAdapter implements SectionIndexer, StickyListHeadersAdapter {
+public class InitialAdapter extends BaseAdapter implements SectionIndexer, BulkHeaderIdsAdapter,
+        ItemRangeNotifyingAdapter, SectionIndexProvider {
+
+    //后台构建分组信息期间的头部字母，此时头ID为NO_HEADER_ID，通常不会显示头部
+    private static final char PENDING_SECTION_LETTER = ' ';
 
     //上下文
     private final Context mContext;
     //列表要填充的内容
-    private String[] mCountries;
+    private CompactStrings mCountries;
+    //资源中的全部内容，restore()时直接复用
+    private final CompactStrings mAllCountries;
+    //全部内容的分组信息，构建一次后restore()时直接复用
+    private Sections mAllSections;
+    //前缀查找，第一次过滤时创建
+    private PrefixSearch mPrefixSearch;
+    //是否处于过滤状态，此时第position行是查找结果中的第position项
+    private boolean mFiltering;
+    //按当前语言计算每一项所属的分组（中文为拼音首字母）
+    private final SectionKeys mSectionKeys;
+    //每一行的分组字母，即头ID，后台构建未完成时为null
+    private char[] mKeys;
     //标记，此处为所有不同的首字母第一次出现的位置
     private int[] mSectionIndices;
+    //位置到分组的直接映射表，未启用时为null，此时使用二分查找
+    private int[] mPositionToSection;
+    //是否建立位置到分组的映射表（每个位置占用一个int）
+    private final boolean mDenseSectionLookup;
     //证书 所有首字母
-    private Character[] mSectionLetters;
+    private String[] mSectionLetters;
+    //分组索引，提供给列表使用，后台构建未完成时为null
+    private SectionIndex mSectionIndex;
+    //后台构建分组信息的线程池，为null时在主线程同步构建
+    private final Executor mSectionIndexExecutor;
+    //全部内容的分组信息是否正在后台构建，构建期间再次加载时复用这次构建
+    private boolean mSectionsLoading;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
     /**
      * 作用类似于findViewById()。
      * 不同点是LayoutInflater是用来找res/layout/下的xml布局文件，并且实例化
@@ -39,51 +76,223 @@ public class InitialAdapter extends BaseAdapter implements SectionIndexer, Stick
      * (Context.LAYOUT_INFLATER_SERVICE);
      */
     private LayoutInflater mInflater;
+    //局部刷新的观察者
+    private final ItemRangeObservable mItemRangeObservable = new ItemRangeObservable();
 
     public InitialAdapter(Context context) {
+        this(context, true);
+    }
+
+    /**
+     * @param denseSectionLookup 为true时额外建立位置到分组的映射表，
+     *                           getSectionForPosition()为O(1)；否则使用二分查找，为O(log n)
+     */
+    public InitialAdapter(Context context, boolean denseSectionLookup) {
+        this(context, denseSectionLookup, null);
+    }
+
+    /**
+     * @param sectionIndexExecutor 不为null时分组信息在该线程池中构建，不阻塞第一帧。
+     *                             构建完成前列表照常显示数据，但不显示头部，
+     *                             getSections()为空；完成后在主线程一次性替换并只通知一次
+     */
+    public InitialAdapter(Context context, boolean denseSectionLookup, Executor sectionIndexExecutor) {
         mContext = context;
+        mDenseSectionLookup = denseSectionLookup;
+        mSectionIndexExecutor = sectionIndexExecutor;
         mInflater = LayoutInflater.from(context);
-        mCountries = context.getResources().getStringArray(R.array.countries);
-        mSectionIndices = getSectionIndices();
-        mSectionLetters = getSectionLetters();
-    }
-
-    //每个首字母出现的位置
-    private int[] getSectionIndices() {
-        ArrayList<Integer> sectionIndices = new ArrayList<>();
-        //获取首字母
-        char lastFirstChar = mCountries[0].charAt(0);
-        sectionIndices.add(0);
-        for (int i = 1; i < mCountries.length; i++) {
-            if (mCountries[i].charAt(0) != lastFirstChar) {
-                lastFirstChar = mCountries[i].charAt(0);
-                sectionIndices.add(i);
+        mSectionKeys = SectionKeys.forLocale(context.getResources().getConfiguration().locale);
+        //压缩存储：所有字符放在一个char[]中，不再为每一项保留一个String
+        mAllCountries = CompactStrings.of(context.getResources().getStringArray(R.array.countries));
+        mCountries = mAllCountries;
+        resetFilter();
+        loadSections();
+    }
+
+    //构建全部内容的分组信息，已构建过时直接复用；异步模式下先清空，完成后再替换
+    private void loadSections() {
+        if (mAllSections != null) {
+            applyRowSections();
+            return;
+        }
+        if (mSectionIndexExecutor == null) {
+            mAllSections = buildSections(mAllCountries, mSectionKeys, mDenseSectionLookup);
+            applyRowSections();
+            return;
+        }
+        applyRowSections();
+        //已有一次构建在进行中，完成后按当时的数据应用
+        if (mSectionsLoading) {
+            return;
+        }
+        mSectionsLoading = true;
+        final CompactStrings countries = mAllCountries;
+        final SectionKeys sectionKeys = mSectionKeys;
+        final boolean denseSectionLookup = mDenseSectionLookup;
+        mSectionIndexExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Sections sections = buildSections(countries, sectionKeys, denseSectionLookup);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mAllSections = sections;
+                        mSectionsLoading = false;
+                        //构建期间已清空数据，只缓存不替换
+                        if (mCountries != mAllCountries) {
+                            return;
+                        }
+                        applyRowSections();
+                        notifyDataSetChanged();
+                    }
+                });
+            }
+        });
+    }
+
+    //按当前显示的行应用分组信息：未过滤时直接使用全部内容的分组，过滤时只为剩余的行重建
+    private void applyRowSections() {
+        if (mCountries != mAllCountries) {
+            applySections(buildSections(new char[0], false));
+        } else if (mAllSections == null) {
+            applySections(Sections.PENDING);
+        } else if (!mFiltering) {
+            applySections(mAllSections);
+        } else {
+            final int start = mPrefixSearch.getStart();
+            final char[] keys = new char[mPrefixSearch.getEnd() - start];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = mAllSections.keys[mPrefixSearch.itemAt(start + i)];
             }
+            applySections(buildSections(keys, mDenseSectionLookup));
         }
-        int[] sections = new int[sectionIndices.size()];
-        for (int i = 0; i < sectionIndices.size(); i++) {
-            sections[i] = sectionIndices.get(i);
+    }
+
+    private void applySections(Sections sections) {
+        mKeys = sections.keys;
+        mSectionIndices = sections.sectionIndices;
+        mPositionToSection = sections.positionToSection;
+        mSectionLetters = sections.sectionLetters;
+        mSectionIndex = sections.sectionIndex;
+    }
+
+    //只读取参数，可以在任意线程执行
+    private static Sections buildSections(CompactStrings countries, SectionKeys sectionKeys,
+                                          boolean denseSectionLookup) {
+        return buildSections(sectionKeys.keys(countries), denseSectionLookup);
+    }
+
+    private static Sections buildSections(char[] keys, boolean denseSectionLookup) {
+        //每个分组第一次出现的位置，启用时同时填充位置到分组的映射表
+        int[] sectionIndices = useParallelBuild(keys.length)
+                ? ParallelSections.sectionStarts(keys) : InitialSections.sectionStarts(keys);
+        int[] positionToSection = denseSectionLookup
+                ? InitialSections.positionToSection(sectionIndices, keys.length) : null;
+        //获取所有分组字母
+        char[] sectionLetters = InitialSections.sectionLetters(keys, sectionIndices);
+        String[] letters = new String[sectionLetters.length];
+        SectionIndex sectionIndex = new SectionIndex();
+        for (int i = 0; i < sectionLetters.length; i++) {
+            letters[i] = String.valueOf(sectionLetters[i]);
+        }
+        for (char key : keys) {
+            sectionIndex.append(key);
         }
-        return sections;
+        return new Sections(keys, sectionIndices, positionToSection, letters, sectionIndex);
     }
 
-    //获取所有首字母
-    private Character[] getSectionLetters() {
-        Character[] letters = new Character[mSectionIndices.length];
-        for (int i = 0; i < mSectionIndices.length; i++) {
-            letters[i] = mCountries[mSectionIndices[i]].charAt(0);
+    //数据量足够大且有多个核心时并行查找分组起始位置，ForkJoinPool从5.0开始可用
+    private static boolean useParallelBuild(int itemCount) {
+        return itemCount >= ParallelSections.PARALLEL_THRESHOLD
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                && Runtime.getRuntime().availableProcessors() > 1;
+    }
+
+    //分组信息是否已经可用，同步模式下总为true
+    public boolean isSectionIndexReady() {
+        return mSectionIndex != null;
+    }
+
+    @Override
+    public SectionIndex getSectionIndex() {
+        return mSectionIndex;
+    }
+
+    /**
+     * 按前缀过滤（忽略大小写），为空时取消过滤。
+     * 每输入一个字符只在上一次的结果中继续查找，删除字符时直接取回之前的结果；
+     * 只为剩余的行重建分组，并以局部刷新的方式通知首尾被移除或插入的行，不会整体刷新
+     */
+    public void setFilterPrefix(CharSequence prefix) {
+        if (mPrefixSearch == null) {
+            mPrefixSearch = new PrefixSearch(mCountries);
+        }
+        final boolean wasFiltering = mFiltering;
+        final int oldStart = wasFiltering ? mPrefixSearch.getStart() : 0;
+        final int oldEnd = wasFiltering ? mPrefixSearch.getEnd() : mCountries.size();
+        mPrefixSearch.setPrefix(prefix);
+        mFiltering = prefix.length() > 0;
+        if (!wasFiltering && !mFiltering) {
+            return;
+        }
+        final int newStart = mFiltering ? mPrefixSearch.getStart() : 0;
+        final int newEnd = mFiltering ? mPrefixSearch.getEnd() : mCountries.size();
+        applyRowSections();
+        if (wasFiltering != mFiltering && !mPrefixSearch.isInItemOrder()) {
+            //查找结果的顺序与原始顺序不同，无法用首尾的增删表示
+            notifyDataSetChanged();
+        } else {
+            notifyRowRangeChange(oldStart, oldEnd, newStart, newEnd);
         }
-        return letters;
+    }
+
+    public void clearFilter() {
+        setFilterPrefix("");
+    }
+
+    //显示的行从[oldStart, oldEnd)变为[newStart, newEnd)，用首尾的移除和插入通知
+    private void notifyRowRangeChange(int oldStart, int oldEnd, int newStart, int newEnd) {
+        if (newStart >= oldEnd || newEnd <= oldStart) {
+            if (oldEnd > oldStart) {
+                notifyItemRangeRemoved(0, oldEnd - oldStart);
+            }
+            if (newEnd > newStart) {
+                notifyItemRangeInserted(0, newEnd - newStart);
+            }
+            return;
+        }
+        if (newStart > oldStart) {
+            notifyItemRangeRemoved(0, newStart - oldStart);
+        } else if (newStart < oldStart) {
+            notifyItemRangeInserted(0, oldStart - newStart);
+        }
+        final int tail = Math.min(oldEnd, newEnd) - newStart;
+        if (newEnd < oldEnd) {
+            notifyItemRangeRemoved(tail, oldEnd - newEnd);
+        } else if (newEnd > oldEnd) {
+            notifyItemRangeInserted(tail, newEnd - oldEnd);
+        }
+    }
+
+    //第position行对应的内容下标
+    private int itemAt(int position) {
+        return mFiltering ? mPrefixSearch.itemAt(mPrefixSearch.getStart() + position) : position;
+    }
+
+    //清理或恢复数据时取消过滤
+    private void resetFilter() {
+        mPrefixSearch = null;
+        mFiltering = false;
     }
 
     @Override
     public int getCount() {
-        return mCountries.length;
+        return mFiltering ? mPrefixSearch.getEnd() - mPrefixSearch.getStart() : mCountries.size();
     }
 
     @Override
     public Object getItem(int position) {
-        return mCountries[position];
+        return mCountries.get(itemAt(position));
     }
 
     @Override
@@ -111,7 +320,9 @@ public class InitialAdapter extends BaseAdapter implements SectionIndexer, Stick
             holder = (ViewHolder) convertView.getTag();
         }
         //设置值
-        holder.text.setText(mCountries[position]);
+        //直接显示共享缓冲区中的字符，不创建String
+        final int item = itemAt(position);
+        holder.text.setText(mCountries.chars(), mCountries.start(item), mCountries.length(item));
         return convertView;
     }
 
@@ -131,12 +342,11 @@ public class InitialAdapter extends BaseAdapter implements SectionIndexer, Stick
 
     @Override
     public int getSectionForPosition(int position) {
-        for (int i = 0; i < mSectionIndices.length; i++) {
-            if (position < mSectionIndices[i]) {
-                return i - 1;
-            }
+        if (mPositionToSection != null && position >= 0 && position < mPositionToSection.length) {
+            return mPositionToSection[position];
         }
-        return mSectionIndices.length - 1;
+        //二分查找最后一个不大于position的分组起始位置
+        return InitialSections.sectionForPosition(mSectionIndices, position);
     }
 
     @Override
@@ -146,19 +356,46 @@ public class InitialAdapter extends BaseAdapter implements SectionIndexer, Stick
 
     //清理
     public void clear() {
-        mCountries = new String[0];
-        mSectionIndices = new int[0];
-        mSectionLetters = new Character[0];
+        mCountries = CompactStrings.EMPTY;
+        resetFilter();
+        applyRowSections();
         notifyDataSetChanged();
     }
 
     public void restore() {
-        mCountries = mContext.getResources().getStringArray(R.array.countries);
-        mSectionIndices = getSectionIndices();
-        mSectionLetters = getSectionLetters();
+        mCountries = mAllCountries;
+        resetFilter();
+        loadSections();
         notifyDataSetChanged();
     }
 
+    @Override
+    public void registerItemRangeObserver(ItemRangeObserver observer) {
+        mItemRangeObservable.registerObserver(observer);
+    }
+
+    @Override
+    public void unregisterItemRangeObserver(ItemRangeObserver observer) {
+        mItemRangeObservable.unregisterObserver(observer);
+    }
+
+    //局部刷新：只通知发生变化的范围，代替notifyDataSetChanged()
+    public void notifyItemRangeChanged(int positionStart, int itemCount) {
+        mItemRangeObservable.notifyItemRangeChanged(positionStart, itemCount);
+    }
+
+    public void notifyItemRangeInserted(int positionStart, int itemCount) {
+        mItemRangeObservable.notifyItemRangeInserted(positionStart, itemCount);
+    }
+
+    public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        mItemRangeObservable.notifyItemRangeRemoved(positionStart, itemCount);
+    }
+
+    public void notifyItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        mItemRangeObservable.notifyItemRangeMoved(fromPosition, toPosition, itemCount);
+    }
+
     /**
      * Get a View that displays the header data at the specified position in the set.
      * You can either create a View manually or inflate it from an XML layout file.
@@ -184,9 +421,10 @@ public class InitialAdapter extends BaseAdapter implements SectionIndexer, Stick
         } else {
             holder = (HeaderViewHolder) convertView.getTag();
         }
-        // set header text as first char in name
-        CharSequence headerChar = mCountries[position].subSequence(0, 1);
-        holder.text.setText(headerChar);
+        // set header text as the section letter of the item
+        // TextView keeps a reference to the array, so every header has its own buffer
+        holder.headerChar[0] = mKeys != null ? mKeys[position] : PENDING_SECTION_LETTER;
+        holder.text.setText(holder.headerChar, 0, 1);
         return convertView;
     }
 
@@ -199,7 +437,35 @@ public class InitialAdapter extends BaseAdapter implements SectionIndexer, Stick
      */
     @Override
     public long getHeaderId(int position) {
-        return mCountries[position].subSequence(0, 1).charAt(0);
+        return mKeys != null ? mKeys[position] : NO_HEADER_ID;
+    }
+
+    @Override
+    public void getHeaderIds(int from, int to, long[] out) {
+        for (int i = from; i < to; i++) {
+            out[i - from] = mKeys != null ? mKeys[i] : NO_HEADER_ID;
+        }
+    }
+
+    //一次构建的全部分组信息，整体替换
+    private static final class Sections {
+        //后台构建进行中：没有分组
+        static final Sections PENDING = new Sections(null, new int[0], null, new String[0], null);
+
+        final char[] keys;
+        final int[] sectionIndices;
+        final int[] positionToSection;
+        final String[] sectionLetters;
+        final SectionIndex sectionIndex;
+
+        Sections(char[] keys, int[] sectionIndices, int[] positionToSection,
+                 String[] sectionLetters, SectionIndex sectionIndex) {
+            this.keys = keys;
+            this.sectionIndices = sectionIndices;
+            this.positionToSection = positionToSection;
+            this.sectionLetters = sectionLetters;
+            this.sectionIndex = sectionIndex;
+        }
     }
 
     class ViewHolder {
@@ -207,6 +473,7 @@ public class InitialAdapter extends BaseAdapter implements SectionIndexer, Stick
     }
     class HeaderViewHolder {
         TextView text;
+        final char[] headerChar = new char[1];
     }
 
 }
@@ -0,0 +1,20 @@
+package com.anxpp.titlelistview;
+
+/**
+ * 可选的局部刷新接口
+ * <p>
+ * An adapter implementing this reports changes to a range of items through
+ * {@link ItemRangeObserver}s instead of calling {@code notifyDataSetChanged()}.
+ * The section bookkeeping is then patched for the affected range only and the
+ * sticky header is kept unless the range overlaps it. Several changes may be
+ * posted after one mutation of the data, header ids are only read once the
+ * list uses them again.
+ *
+ * @author anxpp.com
+ */
+public interface ItemRangeNotifyingAdapter extends StickyListHeadersAdapter {
+
+	void registerItemRangeObserver(ItemRangeObserver observer);
+
+	void unregisterItemRangeObserver(ItemRangeObserver observer);
+}
@@ -0,0 +1,42 @@
+package com.anxpp.titlelistview;
+
+import android.database.Observable;
+
+/**
+ * A specialization of {@link Observable} for {@link ItemRangeObserver}s,
+ * used the same way as {@link android.database.DataSetObservable}.
+ */
+public class ItemRangeObservable extends Observable<ItemRangeObserver> {
+
+	public void notifyItemRangeChanged(int positionStart, int itemCount) {
+		synchronized (mObservers) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				mObservers.get(i).onItemRangeChanged(positionStart, itemCount);
+			}
+		}
+	}
+
+	public void notifyItemRangeInserted(int positionStart, int itemCount) {
+		synchronized (mObservers) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				mObservers.get(i).onItemRangeInserted(positionStart, itemCount);
+			}
+		}
+	}
+
+	public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+		synchronized (mObservers) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				mObservers.get(i).onItemRangeRemoved(positionStart, itemCount);
+			}
+		}
+	}
+
+	public void notifyItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+		synchronized (mObservers) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				mObservers.get(i).onItemRangeMoved(fromPosition, toPosition, itemCount);
+			}
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.anxpp.titlelistview;
+
+/**
+ * Receives callbacks when a range of items of an {@link ItemRangeNotifyingAdapter}
+ * changes, instead of a single callback for the whole data set.
+ * Positions are those of the data set after all earlier callbacks were applied.
+ */
+public abstract class ItemRangeObserver {
+
+	/** {@code itemCount} items starting at {@code positionStart} have changed in place. */
+	public void onItemRangeChanged(int positionStart, int itemCount) {
+	}
+
+	/** {@code itemCount} items were inserted at {@code positionStart}. */
+	public void onItemRangeInserted(int positionStart, int itemCount) {
+	}
+
+	/** {@code itemCount} items were removed from {@code positionStart}. */
+	public void onItemRangeRemoved(int positionStart, int itemCount) {
+	}
+
+	/** {@code itemCount} items were moved from {@code fromPosition} to {@code toPosition}. */
+	public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+	}
+}
@@ -0,0 +1,94 @@
+package com.anxpp.titlelistview;
+
+/**
+ * Mutable counters behind {@link StickyListHeadersMetrics}. Components hold a
+ * reference that is {@code null} while metrics are disabled, so the only cost
+ * then is a null check. Only touched from the UI thread.
+ */
+final class MetricsRecorder implements StickyListHeadersMetrics {
+
+	long rowBindCount;
+	long rowBindNanos;
+	long headerBindCount;
+	long headerBindNanos;
+	long headerPoolHitCount;
+	long headerPoolMissCount;
+	long headerSwapCount;
+	long clearHeaderCount;
+	long headerMeasureCount;
+	long headerMeasureNanos;
+
+	@Override
+	public long getRowBindCount() {
+		return rowBindCount;
+	}
+
+	@Override
+	public long getRowBindNanos() {
+		return rowBindNanos;
+	}
+
+	@Override
+	public long getHeaderBindCount() {
+		return headerBindCount;
+	}
+
+	@Override
+	public long getHeaderBindNanos() {
+		return headerBindNanos;
+	}
+
+	@Override
+	public long getHeaderPoolHitCount() {
+		return headerPoolHitCount;
+	}
+
+	@Override
+	public long getHeaderPoolMissCount() {
+		return headerPoolMissCount;
+	}
+
+	@Override
+	public long getHeaderSwapCount() {
+		return headerSwapCount;
+	}
+
+	@Override
+	public long getClearHeaderCount() {
+		return clearHeaderCount;
+	}
+
+	@Override
+	public long getHeaderMeasureCount() {
+		return headerMeasureCount;
+	}
+
+	@Override
+	public long getHeaderMeasureNanos() {
+		return headerMeasureNanos;
+	}
+
+	@Override
+	public void reset() {
+		rowBindCount = 0;
+		rowBindNanos = 0;
+		headerBindCount = 0;
+		headerBindNanos = 0;
+		headerPoolHitCount = 0;
+		headerPoolMissCount = 0;
+		headerSwapCount = 0;
+		clearHeaderCount = 0;
+		headerMeasureCount = 0;
+		headerMeasureNanos = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "StickyListHeadersMetrics{rowBinds=" + rowBindCount + "/" + rowBindNanos + "ns"
+				+ ", headerBinds=" + headerBindCount + "/" + headerBindNanos + "ns"
+				+ ", headerPool=" + headerPoolHitCount + " hits/" + headerPoolMissCount + " misses"
+				+ ", headerSwaps=" + headerSwapCount
+				+ ", clearHeader=" + clearHeaderCount
+				+ ", headerMeasures=" + headerMeasureCount + "/" + headerMeasureNanos + "ns}";
+	}
+}
@@ -0,0 +1,23 @@
+package com.anxpp.titlelistview;
+
+import java.util.List;
+
+/**
+ * 分页数据源
+ * <p>
+ * Supplies the rows of a {@link PagedStickyListHeadersAdapter} one page at a
+ * time, so the rows never have to be in memory all at once.
+ *
+ * @author anxpp.com
+ */
+public interface PageLoader<T> {
+
+	/** Returns the total number of rows. Called on the main thread. */
+	int getItemCount();
+
+	/**
+	 * Loads the {@code count} rows starting at {@code offset}. Called on a
+	 * background thread, the returned list must hold exactly {@code count} rows.
+	 */
+	List<T> loadPage(int offset, int count);
+}
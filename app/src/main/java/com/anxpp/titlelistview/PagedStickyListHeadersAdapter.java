@@ -0,0 +1,303 @@
+package com.anxpp.titlelistview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+import com.anxpp.titlelistview.sectioning.SectionIndex;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 分页加载的适配器
+ * <p>
+ * Shows the rows of a {@link PageLoader} while keeping only a window of pages
+ * around the bound positions in memory. Pages are loaded on an executor, the
+ * page after the last bound one in the direction of scrolling is fetched
+ * ahead of time. The direction is taken from the first visible position the
+ * list reports, since rows are bound upwards as well while the list lays out.
+ * The header ids of a page are computed on the executor as well, and an
+ * arriving page is announced as a changed item range.
+ * <p>
+ * Rows of a page that is not loaded yet are bound with a {@code null} item
+ * and the header id {@link #PENDING_HEADER_ID}, so they are shown without a
+ * header. No section index is kept, headers are placed by comparing the ids
+ * of neighbouring rows, so the memory used does not grow with the number of
+ * rows.
+ */
+public abstract class PagedStickyListHeadersAdapter<T> extends BaseAdapter
+		implements BulkHeaderIdsAdapter, ItemRangeNotifyingAdapter, SectionIndexProvider,
+		VisibleRangeAwareAdapter {
+
+	public static final int DEFAULT_PAGE_SIZE = 50;
+	public static final int DEFAULT_WINDOW_PAGES = 5;
+	/** Header id of the rows whose page is not loaded yet. */
+	public static final long PENDING_HEADER_ID = NO_HEADER_ID;
+
+	private static final int NO_PAGE = -1;
+
+	private final PageLoader<T> mLoader;
+	private final Executor mExecutor;
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	private final int mPageSize;
+	// the window, null for a free slot
+	private final Page[] mPages;
+	// indexes of the pages being loaded, NO_PAGE for a free slot
+	private final int[] mLoadingPages;
+	private final ItemRangeObservable mItemRangeObservable = new ItemRangeObservable();
+	private int mItemCount;
+	// bumped by invalidate() so pages loaded for older data are dropped
+	private int mGeneration;
+	private int mLastBoundPosition;
+	private int mFirstVisiblePosition;
+	private int mScrollDirection = 1;
+
+	private static final class Page {
+		final int index;
+		final Object[] items;
+		final long[] headerIds;
+
+		Page(int index, Object[] items, long[] headerIds) {
+			this.index = index;
+			this.items = items;
+			this.headerIds = headerIds;
+		}
+	}
+
+	public PagedStickyListHeadersAdapter(PageLoader<T> loader, Executor executor) {
+		this(loader, executor, DEFAULT_PAGE_SIZE, DEFAULT_WINDOW_PAGES);
+	}
+
+	/**
+	 * @param pageSize    number of rows loaded at once
+	 * @param windowPages number of pages kept in memory, at least two so the
+	 *                    prefetched page does not evict the bound one
+	 */
+	public PagedStickyListHeadersAdapter(PageLoader<T> loader, Executor executor, int pageSize,
+										 int windowPages) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+		}
+		if (windowPages < 2) {
+			throw new IllegalArgumentException("Window must hold at least two pages: " + windowPages);
+		}
+		mLoader = loader;
+		mExecutor = executor;
+		mPageSize = pageSize;
+		mPages = new Page[windowPages];
+		mLoadingPages = new int[windowPages];
+		Arrays.fill(mLoadingPages, NO_PAGE);
+		mItemCount = loader.getItemCount();
+	}
+
+	/**
+	 * Returns the header id of {@code item}. Called on the executor while its
+	 * page is loaded, so it must not touch views.
+	 */
+	protected abstract long getItemHeaderId(T item);
+
+	/** Binds the row of {@code item}, which is {@code null} while its page is loading. */
+	protected abstract View getItemView(T item, View convertView, ViewGroup parent);
+
+	/** Binds the header of {@code item}, which is {@code null} while its page is loading. */
+	protected abstract View getItemHeaderView(T item, View convertView, ViewGroup parent);
+
+	/**
+	 * Drops all pages and reads the row count from the loader again. Pages
+	 * still being loaded for the old data are discarded when they arrive.
+	 */
+	public void invalidate() {
+		mGeneration++;
+		Arrays.fill(mPages, null);
+		Arrays.fill(mLoadingPages, NO_PAGE);
+		mItemCount = mLoader.getItemCount();
+		notifyDataSetChanged();
+	}
+
+	/** Returns {@code true} if the row at {@code position} is in memory. */
+	public boolean isLoaded(int position) {
+		return pageAt(position / mPageSize) != null;
+	}
+
+	@Override
+	public int getCount() {
+		return mItemCount;
+	}
+
+	@Override
+	public T getItem(int position) {
+		return itemAt(position);
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return position;
+	}
+
+	@Override
+	public View getView(int position, View convertView, ViewGroup parent) {
+		final int pageIndex = position / mPageSize;
+		mLastBoundPosition = position;
+		final T item = itemAt(position);
+		requestPage(pageIndex + mScrollDirection);
+		return getItemView(item, convertView, parent);
+	}
+
+	@Override
+	public View getHeaderView(int position, View convertView, ViewGroup parent) {
+		return getItemHeaderView(itemAt(position), convertView, parent);
+	}
+
+	@Override
+	public long getHeaderId(int position) {
+		final int pageIndex = position / mPageSize;
+		final Page page = pageAt(pageIndex);
+		if (page == null) {
+			requestPage(pageIndex);
+			return PENDING_HEADER_ID;
+		}
+		return page.headerIds[position - pageIndex * mPageSize];
+	}
+
+	@Override
+	public void getHeaderIds(int from, int to, long[] out) {
+		for (int i = from; i < to; i++) {
+			out[i - from] = getHeaderId(i);
+		}
+	}
+
+	@Override
+	public void onVisibleRangeChanged(int firstPosition, int lastPosition) {
+		if (firstPosition != mFirstVisiblePosition) {
+			mScrollDirection = firstPosition > mFirstVisiblePosition ? 1 : -1;
+			mFirstVisiblePosition = firstPosition;
+		}
+	}
+
+	/** Always {@code null}, a full index would cost memory for every row. */
+	@Override
+	public SectionIndex getSectionIndex() {
+		return null;
+	}
+
+	@Override
+	public void registerItemRangeObserver(ItemRangeObserver observer) {
+		mItemRangeObservable.registerObserver(observer);
+	}
+
+	@Override
+	public void unregisterItemRangeObserver(ItemRangeObserver observer) {
+		mItemRangeObservable.unregisterObserver(observer);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T itemAt(int position) {
+		final int pageIndex = position / mPageSize;
+		final Page page = pageAt(pageIndex);
+		if (page == null) {
+			requestPage(pageIndex);
+			return null;
+		}
+		return (T) page.items[position - pageIndex * mPageSize];
+	}
+
+	private Page pageAt(int pageIndex) {
+		for (Page page : mPages) {
+			if (page != null && page.index == pageIndex) {
+				return page;
+			}
+		}
+		return null;
+	}
+
+	private int pageCount() {
+		return (mItemCount + mPageSize - 1) / mPageSize;
+	}
+
+	/**
+	 * Starts loading a page unless it is loaded, already on its way or out of
+	 * range. If as many pages as fit the window are on their way, the request
+	 * is dropped and made again the next time a row of the page is bound.
+	 */
+	private void requestPage(final int pageIndex) {
+		if (pageIndex < 0 || pageIndex >= pageCount() || pageAt(pageIndex) != null) {
+			return;
+		}
+		int freeSlot = -1;
+		for (int i = 0; i < mLoadingPages.length; i++) {
+			if (mLoadingPages[i] == pageIndex) {
+				return;
+			}
+			if (mLoadingPages[i] == NO_PAGE && freeSlot < 0) {
+				freeSlot = i;
+			}
+		}
+		if (freeSlot < 0) {
+			return;
+		}
+		mLoadingPages[freeSlot] = pageIndex;
+		final int generation = mGeneration;
+		final int offset = pageIndex * mPageSize;
+		final int count = Math.min(mPageSize, mItemCount - offset);
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				Page page = null;
+				try {
+					final List<T> items = mLoader.loadPage(offset, count);
+					final long[] headerIds = new long[count];
+					for (int i = 0; i < count; i++) {
+						headerIds[i] = getItemHeaderId(items.get(i));
+					}
+					page = new Page(pageIndex, items.toArray(), headerIds);
+				} finally {
+					final Page loaded = page;
+					mMainHandler.post(new Runnable() {
+						@Override
+						public void run() {
+							if (generation == mGeneration) {
+								onPageLoaded(pageIndex, loaded);
+							}
+						}
+					});
+				}
+			}
+		});
+	}
+
+	/** Puts a loaded page into the window, {@code page} is null if loading failed. */
+	private void onPageLoaded(int pageIndex, Page page) {
+		for (int i = 0; i < mLoadingPages.length; i++) {
+			if (mLoadingPages[i] == pageIndex) {
+				mLoadingPages[i] = NO_PAGE;
+			}
+		}
+		if (page == null) {
+			return;
+		}
+		// evict the page farthest from the bound position, unless that is the new one
+		final int boundPage = mLastBoundPosition / mPageSize;
+		int slot = -1;
+		int farthest = Math.abs(pageIndex - boundPage);
+		for (int i = 0; i < mPages.length; i++) {
+			if (mPages[i] == null) {
+				slot = i;
+				break;
+			}
+			final int distance = Math.abs(mPages[i].index - boundPage);
+			if (distance > farthest) {
+				farthest = distance;
+				slot = i;
+			}
+		}
+		if (slot < 0) {
+			return;
+		}
+		mPages[slot] = page;
+		mItemRangeObservable.notifyItemRangeChanged(pageIndex * mPageSize, page.items.length);
+	}
+}
@@ -0,0 +1,202 @@
+package com.anxpp.titlelistview;
+
+import android.widget.Adapter;
+
+import com.anxpp.titlelistview.sectioning.RowHeights;
+
+import java.util.Arrays;
+
+/**
+ * Heights of the {@link WrapperView}s of an adapter, header or divider
+ * included, recorded whenever a row is measured. They back the scroll bar of
+ * {@link WrapperViewList} and the offset lookups of
+ * {@link StickyListHeadersListView} with prefix sums, so both stay O(log n)
+ * however many rows there are and rows that were never on screen count with
+ * the average measured height.
+ * <p>
+ * Heights follow their rows through item range changes. After a whole data
+ * set change they are carried over by item id if the adapter has stable ids
+ * and dropped otherwise. This happens lazily on the next access, so a burst
+ * of changes costs one pass over the ids. A different row width drops all
+ * heights.
+ */
+final class RowHeightCache {
+
+	private Adapter mAdapter;
+	private RowHeights mHeights = new RowHeights(0, 0);
+	// heights by item id, only kept while the adapter has stable ids
+	private final IdHeights mIdHeights = new IdHeights();
+	// width the heights were measured at, -1 before the first row
+	private int mWidth = -1;
+	// the data set changed as a whole since the heights were last synced
+	private boolean mStale = true;
+
+	void setAdapter(Adapter adapter) {
+		mAdapter = adapter;
+		mHeights = new RowHeights(0, mHeights.getEstimate());
+		mIdHeights.clear();
+		mStale = true;
+	}
+
+	/** Records the measured height of the row at {@code position}. */
+	void record(int position, int width, int height) {
+		if (width != mWidth) {
+			mWidth = width;
+			mHeights.clear();
+			mIdHeights.clear();
+		}
+		final RowHeights heights = sync();
+		if (heights == null || position < 0 || position >= heights.getCount()) {
+			return;
+		}
+		heights.setHeight(position, height);
+		if (mAdapter.hasStableIds()) {
+			mIdHeights.put(mAdapter.getItemId(position), height);
+		}
+	}
+
+	void onDataSetChanged() {
+		mStale = true;
+	}
+
+	void onItemRangeReplaced(int start, int removedCount, int insertedCount) {
+		if (mStale || start < 0 || start + removedCount > mHeights.getCount()) {
+			mStale = true;
+			return;
+		}
+		mHeights.replace(start, removedCount, insertedCount);
+	}
+
+	void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+		if (mStale || Math.max(fromPosition, toPosition) + itemCount > mHeights.getCount()) {
+			mStale = true;
+			return;
+		}
+		mHeights.move(fromPosition, toPosition, itemCount);
+	}
+
+	/** Sum of the heights of the rows before {@code position}, -1 without an adapter. */
+	long getOffset(int position) {
+		final RowHeights heights = sync();
+		return heights != null ? heights.getOffset(Math.max(0, Math.min(position, heights.getCount()))) : -1;
+	}
+
+	/** Height of the row at {@code position}, -1 without an adapter. */
+	int getHeight(int position) {
+		final RowHeights heights = sync();
+		return heights != null && position >= 0 && position < heights.getCount() ? heights.getHeight(position) : -1;
+	}
+
+	long getTotalHeight() {
+		final RowHeights heights = sync();
+		return heights != null ? heights.getTotalHeight() : 0;
+	}
+
+	/** Row covering the pixel {@code offset} from the top of the first row, -1 if there are none. */
+	int getPositionForOffset(long offset) {
+		final RowHeights heights = sync();
+		return heights != null ? heights.getPositionForOffset(offset) : -1;
+	}
+
+	// brings the heights in line with the adapter after a whole data set change
+	private RowHeights sync() {
+		if (mAdapter == null) {
+			return null;
+		}
+		final int count = mAdapter.getCount();
+		if (!mStale && mHeights.getCount() == count) {
+			return mHeights;
+		}
+		mStale = false;
+		// the old average stands in for the rows until they are measured again
+		final RowHeights heights = new RowHeights(count, mHeights.getEstimate());
+		if (mAdapter.hasStableIds() && mIdHeights.size() > 0) {
+			final IdHeights kept = new IdHeights();
+			for (int i = 0; i < count; i++) {
+				final long id = mAdapter.getItemId(i);
+				final int height = mIdHeights.get(id);
+				if (height != RowHeights.UNKNOWN) {
+					heights.setHeight(i, height);
+					kept.put(id, height);
+				}
+			}
+			mIdHeights.set(kept);
+		} else {
+			mIdHeights.clear();
+		}
+		mHeights = heights;
+		return heights;
+	}
+
+	/** Open addressing map from item id to height that grows as needed. */
+	private static final class IdHeights {
+
+		private static final int INITIAL_CAPACITY = 64;
+
+		private long[] mIds;
+		private int[] mHeights;
+		private int mSize;
+
+		IdHeights() {
+			allocate(INITIAL_CAPACITY);
+		}
+
+		private void allocate(int capacity) {
+			mIds = new long[capacity];
+			mHeights = new int[capacity];
+			Arrays.fill(mHeights, RowHeights.UNKNOWN);
+			mSize = 0;
+		}
+
+		private int slot(long id) {
+			final long hash = id * 0x9E3779B97F4A7C15L;
+			final int mask = mHeights.length - 1;
+			int slot = (int) (hash ^ (hash >>> 32)) & mask;
+			while (mHeights[slot] != RowHeights.UNKNOWN && mIds[slot] != id) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		int size() {
+			return mSize;
+		}
+
+		/** Returns the height of {@code id}, or {@link RowHeights#UNKNOWN}. */
+		int get(long id) {
+			return mHeights[slot(id)];
+		}
+
+		void put(long id, int height) {
+			// keep the load factor at or below one half
+			if ((mSize + 1) * 2 > mHeights.length) {
+				final long[] ids = mIds;
+				final int[] heights = mHeights;
+				allocate(heights.length * 2);
+				for (int i = 0; i < heights.length; i++) {
+					if (heights[i] != RowHeights.UNKNOWN) {
+						put(ids[i], heights[i]);
+					}
+				}
+			}
+			final int slot = slot(id);
+			if (mHeights[slot] == RowHeights.UNKNOWN) {
+				mSize++;
+			}
+			mIds[slot] = id;
+			mHeights[slot] = height;
+		}
+
+		void set(IdHeights other) {
+			mIds = other.mIds;
+			mHeights = other.mHeights;
+			mSize = other.mSize;
+		}
+
+		void clear() {
+			if (mSize > 0) {
+				allocate(INITIAL_CAPACITY);
+			}
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package com.anxpp.titlelistview;
+
+import com.anxpp.titlelistview.sectioning.SectionIndex;
+
+/**
+ * 可选的分组索引接口
+ * <p>
+ * An adapter that already knows its section starts can hand them to the list
+ * through this interface, so the list does not build an index of its own by
+ * walking every header id on the main thread. The adapter is responsible for
+ * keeping the index in step with its data, including the changes it reports
+ * as item ranges.
+ *
+ * @author anxpp.com
+ */
+public interface SectionIndexProvider extends StickyListHeadersAdapter {
+
+	/**
+	 * Returns the section index of the current data, or {@code null} while it
+	 * is still being built. Until then headers are placed by comparing the
+	 * header ids of neighbouring positions.
+	 */
+	SectionIndex getSectionIndex();
+}
@@ -3,29 +3,85 @@ package com.anxpp.titlelistview;
 import android.content.Context;
 import android.widget.SectionIndexer;
 
+import com.anxpp.titlelistview.sectioning.InitialSections;
+
+/**
+ * Adds the {@link SectionIndexer} of the delegate to the wrapper. The fast
+ * scroller asks for the sections on every move of the thumb, so the section
+ * labels and the first position of every section are read from the delegate
+ * once per data change. While dragging every call is then an array read or a
+ * binary search over the sections, and the labels are Strings whose
+ * toString() does not allocate. Nothing is kept per position, so the tables
+ * cost the same for a list of any length.
+ */
 class SectionIndexerAdapterWrapper extends AdapterWrapper implements SectionIndexer {
 	
 	SectionIndexer mSectionIndexerDelegate;
 
+	// tables derived from the delegate, rebuilt lazily after every data change
+	private boolean mTablesValid = false;
+	private String[] mSectionLabels = new String[0];
+	// first position of every section
+	private int[] mSectionPositions = new int[0];
+
 	SectionIndexerAdapterWrapper(Context context,
 								 StickyListHeadersAdapter delegate) {
-		super(context, delegate);
+		this(context, delegate, HeaderViewPool.DEFAULT_CAPACITY);
+	}
+
+	SectionIndexerAdapterWrapper(Context context,
+								 StickyListHeadersAdapter delegate, int headerPoolCapacity) {
+		super(context, delegate, headerPoolCapacity);
 		mSectionIndexerDelegate = (SectionIndexer) delegate;
 	}
 
+	@Override
+	void onDelegateDataChanged() {
+		mTablesValid = false;
+	}
+
+	private void ensureTables() {
+		if (mTablesValid) {
+			return;
+		}
+		final Object[] sections = mSectionIndexerDelegate.getSections();
+		final int sectionCount = sections != null ? sections.length : 0;
+		if (mSectionLabels.length != sectionCount) {
+			mSectionLabels = new String[sectionCount];
+			mSectionPositions = new int[sectionCount];
+		}
+		for (int section = 0; section < sectionCount; section++) {
+			mSectionLabels[section] = String.valueOf(sections[section]);
+			mSectionPositions[section] = mSectionIndexerDelegate.getPositionForSection(section);
+		}
+		mTablesValid = true;
+	}
+
 	@Override
 	public int getPositionForSection(int section) {
-		return mSectionIndexerDelegate.getPositionForSection(section);
+		ensureTables();
+		if (mSectionPositions.length == 0) {
+			return 0;
+		}
+		if (section < 0) {
+			section = 0;
+		} else if (section >= mSectionPositions.length) {
+			section = mSectionPositions.length - 1;
+		}
+		return mSectionPositions[section];
 	}
 
 	@Override
 	public int getSectionForPosition(int position) {
-		return mSectionIndexerDelegate.getSectionForPosition(position);
+		ensureTables();
+		// positions before the first section start belong to the first section
+		return Math.max(0, InitialSections.sectionForPosition(mSectionPositions, position));
 	}
 
 	@Override
 	public Object[] getSections() {
-		return mSectionIndexerDelegate.getSections();
+		ensureTables();
+		return mSectionLabels;
 	}
 
 }
@@ -0,0 +1,190 @@
+package com.anxpp.titlelistview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+import com.anxpp.titlelistview.sectioning.SectionIndex;
+import com.anxpp.titlelistview.sectioning.Snapshot;
+import com.anxpp.titlelistview.sectioning.SnapshotDiff;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 增量更新的适配器
+ * <p>
+ * Shows a list of items that is replaced as a whole with
+ * {@link #submitList(List)}. The ids of the new list are read and diffed
+ * against the current ones on an executor, together with the section index
+ * of the new list. On the main thread the new list is then published as the
+ * removals, moves, insertions and changes of the diff instead of one data set
+ * change, so the list keeps its scroll position, its sticky header and its
+ * rows wherever the items stayed the same.
+ * <p>
+ * Items are matched by {@link #getItemStableId(Object)}. A row counts as
+ * changed if its header id or {@link #getItemContentHash(Object)} differ.
+ */
+public abstract class SnapshotStickyListHeadersAdapter<T> extends BaseAdapter
+		implements BulkHeaderIdsAdapter, ItemRangeNotifyingAdapter, SectionIndexProvider {
+
+	private final Executor mExecutor;
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	private final ItemRangeObservable mItemRangeObservable = new ItemRangeObservable();
+	private List<T> mItems = Collections.emptyList();
+	private Snapshot mSnapshot = Snapshot.EMPTY;
+	private SectionIndex mSectionIndex = new SectionIndex();
+	// bumped by every submitList() so only the latest diff is applied
+	private int mGeneration;
+
+	private final SnapshotDiff.Callback mDiffDispatcher = new SnapshotDiff.Callback() {
+
+		@Override
+		public void onRemoved(int position, int count) {
+			mItemRangeObservable.notifyItemRangeRemoved(position, count);
+		}
+
+		@Override
+		public void onMoved(int fromPosition, int toPosition) {
+			mItemRangeObservable.notifyItemRangeMoved(fromPosition, toPosition, 1);
+		}
+
+		@Override
+		public void onInserted(int position, int count) {
+			mItemRangeObservable.notifyItemRangeInserted(position, count);
+		}
+
+		@Override
+		public void onChanged(int position, int count) {
+			mItemRangeObservable.notifyItemRangeChanged(position, count);
+		}
+	};
+
+	public SnapshotStickyListHeadersAdapter(Executor executor) {
+		mExecutor = executor;
+	}
+
+	/** Stable id of {@code item}. Called on the executor. */
+	protected abstract long getItemStableId(T item);
+
+	/** Header id of {@code item}. Called on the executor. */
+	protected abstract long getItemHeaderId(T item);
+
+	/**
+	 * Hash of what the row of {@code item} shows, rows whose hash changed are
+	 * bound again. Called on the executor.
+	 */
+	protected long getItemContentHash(T item) {
+		return item.hashCode();
+	}
+
+	protected abstract View getItemView(T item, View convertView, ViewGroup parent);
+
+	protected abstract View getItemHeaderView(T item, View convertView, ViewGroup parent);
+
+	/**
+	 * Replaces the items. The list must not be changed afterwards. If another
+	 * list is submitted before the diff of this one is applied, this one is
+	 * skipped.
+	 */
+	public void submitList(final List<T> items) {
+		final int generation = ++mGeneration;
+		final Snapshot oldSnapshot = mSnapshot;
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				final int size = items.size();
+				final long[] itemIds = new long[size];
+				final long[] headerIds = new long[size];
+				final long[] contentHashes = new long[size];
+				for (int i = 0; i < size; i++) {
+					final T item = items.get(i);
+					itemIds[i] = getItemStableId(item);
+					headerIds[i] = getItemHeaderId(item);
+					contentHashes[i] = getItemContentHash(item);
+				}
+				final Snapshot snapshot = new Snapshot(itemIds, headerIds, contentHashes);
+				final SnapshotDiff diff = SnapshotDiff.compute(oldSnapshot, snapshot);
+				final SectionIndex sectionIndex = snapshot.buildSectionIndex();
+				mMainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (generation == mGeneration) {
+							apply(items, snapshot, sectionIndex, diff);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	private void apply(List<T> items, Snapshot snapshot, SectionIndex sectionIndex, SnapshotDiff diff) {
+		mItems = items;
+		mSnapshot = snapshot;
+		mSectionIndex = sectionIndex;
+		if (diff.isReset()) {
+			notifyDataSetChanged();
+		} else {
+			diff.dispatchTo(mDiffDispatcher);
+		}
+	}
+
+	@Override
+	public int getCount() {
+		return mItems.size();
+	}
+
+	@Override
+	public T getItem(int position) {
+		return mItems.get(position);
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return mSnapshot.getItemId(position);
+	}
+
+	@Override
+	public boolean hasStableIds() {
+		return true;
+	}
+
+	@Override
+	public View getView(int position, View convertView, ViewGroup parent) {
+		return getItemView(mItems.get(position), convertView, parent);
+	}
+
+	@Override
+	public View getHeaderView(int position, View convertView, ViewGroup parent) {
+		return getItemHeaderView(mItems.get(position), convertView, parent);
+	}
+
+	@Override
+	public long getHeaderId(int position) {
+		return mSnapshot.getHeaderId(position);
+	}
+
+	@Override
+	public void getHeaderIds(int from, int to, long[] out) {
+		mSnapshot.getHeaderIds(from, to, out);
+	}
+
+	/** Built on the executor together with the diff. */
+	@Override
+	public SectionIndex getSectionIndex() {
+		return mSectionIndex;
+	}
+
+	@Override
+	public void registerItemRangeObserver(ItemRangeObserver observer) {
+		mItemRangeObservable.registerObserver(observer);
+	}
+
+	@Override
+	public void unregisterItemRangeObserver(ItemRangeObserver observer) {
+		mItemRangeObservable.unregisterObserver(observer);
+	}
+}
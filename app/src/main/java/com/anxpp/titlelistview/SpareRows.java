@@ -0,0 +1,86 @@
+package com.anxpp.titlelistview;
+
+import java.util.Arrays;
+
+/**
+ * Rows inflated ahead of time, keyed by item view type.
+ * <p>
+ * Every type keeps its rows in a small array used as a stack. The rows are
+ * handed out by {@link AdapterWrapper} before it creates new ones and are not
+ * counted in the header pool statistics.
+ */
+final class SpareRows {
+
+	//one stack per item view type
+	private WrapperView[][] mRows;
+	private int[] mSizes;
+	private int mCapacity;
+
+	/** @param typeCount number of item view types known up front */
+	SpareRows(int typeCount) {
+		mRows = new WrapperView[Math.max(typeCount, 1)][];
+		mSizes = new int[mRows.length];
+	}
+
+	private WrapperView[] stackFor(int type) {
+		if (type >= mRows.length) {
+			mRows = Arrays.copyOf(mRows, type + 1);
+			mSizes = Arrays.copyOf(mSizes, type + 1);
+		}
+		if (mRows[type] == null) {
+			mRows[type] = new WrapperView[mCapacity];
+		}
+		return mRows[type];
+	}
+
+	/** Returns a spare row of the given type, or {@code null} if there is none. */
+	WrapperView acquire(int type) {
+		if (type < 0 || type >= mSizes.length || mSizes[type] == 0) {
+			return null;
+		}
+		final WrapperView row = mRows[type][--mSizes[type]];
+		mRows[type][mSizes[type]] = null;
+		return row;
+	}
+
+	/** Keeps a row of the given type. Returns {@code false} if no more rows of that type are kept. */
+	boolean add(WrapperView row, int type) {
+		if (type < 0) {
+			return false;
+		}
+		final WrapperView[] stack = stackFor(type);
+		if (mSizes[type] == stack.length) {
+			return false;
+		}
+		stack[mSizes[type]++] = row;
+		return true;
+	}
+
+	boolean isFull(int type) {
+		return type < 0 || (type < mSizes.length ? mSizes[type] : 0) >= mCapacity;
+	}
+
+	void clear() {
+		for (int type = 0; type < mRows.length; type++) {
+			while (mSizes[type] > 0) {
+				mRows[type][--mSizes[type]] = null;
+			}
+		}
+	}
+
+	/** Sets how many rows are kept per type, dropping the ones above it. */
+	void setCapacity(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+		}
+		mCapacity = capacity;
+		for (int type = 0; type < mRows.length; type++) {
+			while (mSizes[type] > capacity) {
+				mRows[type][--mSizes[type]] = null;
+			}
+			if (mRows[type] != null) {
+				mRows[type] = Arrays.copyOf(mRows[type], capacity);
+			}
+		}
+	}
+}
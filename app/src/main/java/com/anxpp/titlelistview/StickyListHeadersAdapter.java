@@ -11,6 +11,12 @@ import android.widget.ListAdapter;
  */
 public interface StickyListHeadersAdapter extends ListAdapter {
 
+	/**
+	 * Header id of positions shown without a header, for example while the
+	 * header ids are not known yet. No sticky header is shown for them either.
+	 */
+	long NO_HEADER_ID = Long.MIN_VALUE;
+
 	View getHeaderView(int position, View convertView, ViewGroup parent);
 
 	long getHeaderId(int position);
@@ -6,15 +6,22 @@ import android.content.Context;
 import android.database.DataSetObserver;
 import android.graphics.Canvas;
 import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
+import android.widget.AbsListView.OnScrollListener;
+import android.widget.AdapterView;
 import android.widget.FrameLayout;
 import android.widget.SectionIndexer;
 
 import com.anxpp.titlelistview.WrapperViewList.LifeCycleListener;
+import com.anxpp.titlelistview.sectioning.SectionIndex;
 
 /**
  * 尽管这是一个FrameLayout类,我们仍认为这是一个ListView。
@@ -33,23 +40,66 @@ public class StickyListHeadersListView extends FrameLayout {
     private View mHeader;
 
     /* --- Header 的一些参数 --- */
-    //id
-    private Long mHeaderId;
+    //使用基本类型而不是Long/Integer，每帧更新头布局时不会装箱分配内存
+    private static final int NO_POSITION = -1;
+    private static final int NO_OFFSET = Integer.MIN_VALUE;
+    //平滑滚动到分组时最多动画滚动的屏数，更远的先直接跳过去
+    static final int SMOOTH_SCROLL_MAX_PAGES = 3;
+    //id，mHeaderPosition为NO_POSITION时无效
+    private long mHeaderId;
     //位置
-    private Integer mHeaderPosition;
+    private int mHeaderPosition = NO_POSITION;
     //偏移量
-    private Integer mHeaderOffset;
+    private int mHeaderOffset = NO_OFFSET;
+    //类型
+    private int mHeaderViewType;
+    //每种类型最近使用过的头布局，用于按类型复用
+    private View[] mHeadersByType = new View[1];
 
     /* --- 成员 --- */
     private AdapterWrapper mAdapter;
+    //头布局缓存池的容量
+    private int mHeaderPoolCapacity = HeaderViewPool.DEFAULT_CAPACITY;
+    //运行时统计，未启用时为null
+    private MetricsRecorder mMetrics;
+    //空闲时预先创建的头布局和行布局数量，都为0时不预创建
+    private int mWarmUpHeaderCount;
+    private int mWarmUpRowCount;
+    private WarmUpTask mWarmUpTask;
+    //记录的行高，未启用时为null
+    private RowHeightCache mRowHeightCache;
 
     private boolean mClippingToPadding = true;
+    //是否把头布局渲染到图层中，滚动时只改变图层的平移，不再重绘头布局
+    private boolean mStickyHeaderLayerEnabled = false;
     private int mPaddingLeft = 0;
     private int mPaddingTop = 0;
     private int mPaddingRight = 0;
     private int mPaddingBottom = 0;
 
     private AdapterWrapperDataSetObserver mDataSetObserver;
+    private AdapterWrapperItemRangeObserver mItemRangeObserver;
+    //外部设置的滚动监听
+    private OnScrollListener mOnScrollListenerDelegate;
+
+    /* --- 滚动驱动的头布局更新 --- */
+    //滚动后标记，在下一帧绘制前统一更新一次
+    private boolean mHeaderUpdatePending = false;
+    //数据变化后头布局需要重新绑定，头ID不变时原地绑定，不移除视图
+    private boolean mHeaderDirty = false;
+    //上次更新时第一个可见位置及其顶部偏移，都没有变化时跳过更新
+    private int mLastFirstVisiblePosition = -1;
+    private int mLastFirstVisibleTop;
+    private final ViewTreeObserver.OnPreDrawListener mHeaderUpdater = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (mHeaderUpdatePending) {
+                mHeaderUpdatePending = false;
+                updateHeaderIfScrolled();
+            }
+            return true;
+        }
+    };
 
     public StickyListHeadersListView(Context context) {
         this(context, null);
@@ -65,9 +115,23 @@ public class StickyListHeadersListView extends FrameLayout {
         // 初始化封装的列表视图
         wrapperViewList = new WrapperViewList(context);
         wrapperViewList.setLifeCycleListener(new WrapperViewListLifeCycleListener());
+        wrapperViewList.setOnScrollListener(new WrapperListScrollListener());
         addView(wrapperViewList);
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(mHeaderUpdater);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnPreDrawListener(mHeaderUpdater);
+        cancelWarmUp();
+        super.onDetachedFromWindow();
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
@@ -91,13 +155,56 @@ public class StickyListHeadersListView extends FrameLayout {
             final int width = getMeasuredWidth() - mPaddingLeft - mPaddingRight;
             final int parentWidthMeasureSpec = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
             final int parentHeightMeasureSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
-            measureChild(header, parentWidthMeasureSpec, parentHeightMeasureSpec);
+            if (mAdapter == null || mHeaderPosition == NO_POSITION) {
+                measureChild(header, parentWidthMeasureSpec, parentHeightMeasureSpec);
+                return;
+            }
+            // same as measureChild(), this layout has no padding of its own
+            final ViewGroup.LayoutParams lp = header.getLayoutParams();
+            mAdapter.getHeaderMeasureCache().measure(header, mHeaderId,
+                    getChildMeasureSpec(parentWidthMeasureSpec, 0, lp.width),
+                    getChildMeasureSpec(parentHeightMeasureSpec, 0, lp.height));
+        }
+    }
+
+    /**
+     * Drops all cached header measurements, call this when header content
+     * changed in a way that changes the header heights.
+     */
+    public void invalidateHeaderMeasurements() {
+        if (mAdapter != null) {
+            mAdapter.getHeaderMeasureCache().clear();
         }
+        forceRowLayout();
+    }
+
+    /** Drops the cached measurements of the headers bound to {@code headerId}. */
+    public void invalidateHeaderMeasurement(long headerId) {
+        if (mAdapter != null) {
+            mAdapter.getHeaderMeasureCache().invalidate(headerId);
+        }
+        forceRowLayout();
+    }
+
+    // Visible rows are only measured again by the list if they request it
+    private void forceRowLayout() {
+        for (int i = 0; i < wrapperViewList.getChildCount(); i++) {
+            wrapperViewList.getChildAt(i).forceLayout();
+        }
+        if (mHeader != null) {
+            mHeader.forceLayout();
+        }
+        wrapperViewList.requestLayout();
+        requestLayout();
     }
 
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         wrapperViewList.layout(0, 0, wrapperViewList.getMeasuredWidth(), getHeight());
+        layoutHeader();
+    }
+
+    private void layoutHeader() {
         if (mHeader != null) {
             MarginLayoutParams layoutParams = (MarginLayoutParams) mHeader.getLayoutParams();
             int headerTop = layoutParams.topMargin;
@@ -116,18 +223,54 @@ public class StickyListHeadersListView extends FrameLayout {
     }
 
     // Reset values tied the header. also remove header form layout
-    // This is called in response to the data set or the adapter changing
+    // This is called in response to the data set or the adapter changing, and from the
+    // per-frame update when there is no header to show, so it does not schedule an update
     private void clearHeader() {
-        if (mHeader != null) {
-            removeView(mHeader);
-            mHeader = null;
-            mHeaderId = null;
-            mHeaderPosition = null;
-            mHeaderOffset = null;
-            // reset the top clipping length
-            wrapperViewList.setTopClippingLength(0);
-            updateHeaderVisibilities();
+        if (mHeader == null) {
+            return;
+        }
+        if (mMetrics != null) {
+            mMetrics.clearHeaderCount++;
         }
+        mHeaderDirty = false;
+        removeView(mHeader);
+        setHeaderLayer(mHeader, false);
+        mHeader = null;
+        mHeaderPosition = NO_POSITION;
+        mHeaderOffset = NO_OFFSET;
+        // reset the top clipping length
+        wrapperViewList.setTopClippingLength(0);
+        updateHeaderVisibilities();
+    }
+
+    // Called at most once per frame, before drawing, after the list scrolled or laid out
+    private void updateHeaderIfScrolled() {
+        final int firstVisiblePosition = wrapperViewList.getFixedFirstVisibleItem();
+        final int firstVisibleTop = wrapperViewList.getChildCount() > 0
+                ? wrapperViewList.getChildAt(0).getTop() : 0;
+        if (firstVisiblePosition == mLastFirstVisiblePosition && firstVisibleTop == mLastFirstVisibleTop) {
+            return;
+        }
+        mLastFirstVisiblePosition = firstVisiblePosition;
+        mLastFirstVisibleTop = firstVisibleTop;
+        updateOrClearHeader(firstVisiblePosition);
+    }
+
+    // The data behind the sticky header changed: it is bound again on the next update,
+    // in place if its header id stayed the same
+    private void markHeaderDirty() {
+        if (mHeader == null || mAdapter == null || mAdapter.getCount() == 0) {
+            clearHeader();
+        } else {
+            mHeaderDirty = true;
+        }
+        invalidateHeaderUpdate();
+    }
+
+    // Schedules a header update for the next frame even if the list did not scroll
+    private void invalidateHeaderUpdate() {
+        mLastFirstVisiblePosition = -1;
+        mHeaderUpdatePending = true;
     }
 
     private void updateOrClearHeader(int firstVisiblePosition) {
@@ -154,7 +297,8 @@ public class StickyListHeadersListView extends FrameLayout {
                 && wrapperViewList.getChildAt(0).getTop() >= stickyHeaderTop();
         final boolean isHeaderPositionOutsideAdapterRange = headerPosition > adapterCount - 1
                 || headerPosition < 0;
-        if (!doesListHaveChildren || isHeaderPositionOutsideAdapterRange || isFirstViewBelowTop) {
+        if (!doesListHaveChildren || isHeaderPositionOutsideAdapterRange || isFirstViewBelowTop
+                || mAdapter.getHeaderId(headerPosition) == StickyListHeadersAdapter.NO_HEADER_ID) {
             clearHeader();
             return;
         }
@@ -164,38 +308,48 @@ public class StickyListHeadersListView extends FrameLayout {
 
     private void updateHeader(int headerPosition) {
 
-        // check if there is a new header should be sticky
-        if (mHeaderPosition == null || mHeaderPosition != headerPosition) {
+        // check if there is a new header should be sticky, or the data of the current one changed
+        if (mHeaderDirty || mHeaderPosition != headerPosition) {
+            final boolean hasHeaderId = mHeaderPosition != NO_POSITION;
+            final boolean rebind = mHeaderDirty;
+            mHeaderDirty = false;
             mHeaderPosition = headerPosition;
             final long headerId = mAdapter.getHeaderId(headerPosition);
-            if (mHeaderId == null || mHeaderId != headerId) {
+            // with the same header id and type the header is handed back as convertView and stays attached
+            if (!hasHeaderId || mHeaderId != headerId || rebind) {
                 mHeaderId = headerId;
-                final View header = mAdapter.getHeaderView(mHeaderPosition, mHeader, this);
+                final int headerViewType = mAdapter.getHeaderViewType(headerPosition);
+                final View convertView = mHeader != null && mHeaderViewType == headerViewType
+                        ? mHeader : headerForType(headerViewType);
+                final View header = mAdapter.getHeaderView(mHeaderPosition, convertView, this);
                 if (mHeader != header) {
                     if (header == null) {
                         throw new NullPointerException("header may not be null");
                     }
                     swapHeader(header);
                 }
+                mHeaderViewType = headerViewType;
+                mHeadersByType[headerViewType] = header;
                 ensureHeaderHasCorrectLayoutParams(mHeader);
                 measureHeader(mHeader);
-                // Reset mHeaderOffset to null ensuring
+                // updates run in onPreDraw, after the layout pass, so the header is
+                // laid out here to be drawn with its new size in this frame
+                layoutHeader();
+                // Reset mHeaderOffset ensuring
                 // that it will be set on the header and
                 // not skipped for performance reasons.
-                mHeaderOffset = null;
+                mHeaderOffset = NO_OFFSET;
             }
         }
 
         int headerOffset = stickyHeaderTop();
 
-        // Calculate new header offset
-        // Skip looking at the first view. it never matters because it always
-        // results in a headerOffset = 0
-        for (int i = 0; i < wrapperViewList.getChildCount(); i++) {
-            final View child = wrapperViewList.getChildAt(i);
-            final boolean doesChildHaveHeader = child instanceof WrapperView && ((WrapperView) child).hasHeader();
-            final boolean isChildFooter = wrapperViewList.containsFooterView(child);
-            if (child.getTop() >= stickyHeaderTop() && (doesChildHaveHeader || isChildFooter)) {
+        // Calculate new header offset from the first header or footer row below
+        // the sticky header top, only rows recorded as such are looked at
+        final int headerOrFooterChildCount = wrapperViewList.getHeaderOrFooterChildCount();
+        for (int i = 0; i < headerOrFooterChildCount; i++) {
+            final View child = wrapperViewList.getHeaderOrFooterChildAt(i);
+            if (child.getTop() >= stickyHeaderTop()) {
                 headerOffset = Math.min(child.getTop() - mHeader.getMeasuredHeight(), headerOffset);
                 break;
             }
@@ -208,24 +362,66 @@ public class StickyListHeadersListView extends FrameLayout {
         updateHeaderVisibilities();
     }
 
+    // Returns the last sticky header used for the given type, if any
+    private View headerForType(int headerViewType) {
+        if (headerViewType >= mHeadersByType.length) {
+            View[] headersByType = new View[headerViewType + 1];
+            System.arraycopy(mHeadersByType, 0, headersByType, 0, mHeadersByType.length);
+            mHeadersByType = headersByType;
+        }
+        return mHeadersByType[headerViewType];
+    }
+
+    // Forget the sticky headers kept per type, their layouts belong to the old data
+    private void clearHeadersByType() {
+        mHeadersByType = new View[1];
+    }
+
     private void swapHeader(View newHeader) {
+        if (mMetrics != null) {
+            mMetrics.headerSwapCount++;
+        }
         if (mHeader != null) {
             removeView(mHeader);
+            setHeaderLayer(mHeader, false);
         }
         mHeader = newHeader;
         addView(mHeader);
         mHeader.setClickable(true);
+        setHeaderLayer(mHeader, mStickyHeaderLayerEnabled);
+    }
+
+    // Renders the header into a hardware layer, or a bitmap when not hardware
+    // accelerated. Changing the translation in setHeaderOffet() then only
+    // recomposes the layer, it is redrawn when the header content is invalidated
+    // which happens when updateHeader() binds a new header id.
+    @SuppressLint("NewApi")
+    private void setHeaderLayer(View header, boolean enabled) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            return;
+        }
+        final int layerType;
+        if (!enabled) {
+            layerType = View.LAYER_TYPE_NONE;
+        } else if (isHardwareAccelerated()) {
+            layerType = View.LAYER_TYPE_HARDWARE;
+        } else {
+            layerType = View.LAYER_TYPE_SOFTWARE;
+        }
+        if (header.getLayerType() != layerType) {
+            header.setLayerType(layerType, null);
+        }
     }
 
     // hides the headers in the list under the sticky header.
     // Makes sure the other ones are showing
     private void updateHeaderVisibilities() {
         int top = stickyHeaderTop();
-        int childCount = wrapperViewList.getChildCount();
+        int childCount = wrapperViewList.getHeaderOrFooterChildCount();
         for (int i = 0; i < childCount; i++) {
 
-            // ensure child is a wrapper view
-            View child = wrapperViewList.getChildAt(i);
+            // ensure child is a wrapper view, footers are recorded as well
+            View child = wrapperViewList.getHeaderOrFooterChildAt(i);
             if (!(child instanceof WrapperView)) {
                 continue;
             }
@@ -254,7 +450,7 @@ public class StickyListHeadersListView extends FrameLayout {
     // the API version
     @SuppressLint("NewApi")
     private void setHeaderOffet(int offset) {
-        if (mHeaderOffset == null || mHeaderOffset != offset) {
+        if (mHeaderOffset != offset) {
             mHeaderOffset = offset;
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
                 mHeader.setTranslationY(mHeaderOffset);
@@ -269,11 +465,124 @@ public class StickyListHeadersListView extends FrameLayout {
     private class AdapterWrapperDataSetObserver extends DataSetObserver {
         @Override
         public void onChanged() {
-            clearHeader();
+            // item range changes were already looked at by AdapterWrapperItemRangeObserver
+            if (mAdapter.isDispatchingItemRangeChange()) {
+                return;
+            }
+            markHeaderDirty();
         }
         @Override
         public void onInvalidated() {
             clearHeader();
+            clearHeadersByType();
+            invalidateHeaderUpdate();
+        }
+    }
+
+    // Keeps the sticky header and the first visible row across item range changes,
+    // the header is bound again in place if its row was removed or changed
+    private class AdapterWrapperItemRangeObserver extends ItemRangeObserver {
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            invalidateHeaderUpdate();
+            if (mHeaderPosition == NO_POSITION
+                    || (mHeaderPosition >= positionStart && mHeaderPosition < positionStart + itemCount)) {
+                markHeaderDirty();
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            onItemRangeReplaced(positionStart, 0, positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            onItemRangeReplaced(positionStart, itemCount, positionStart, 0);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            onItemRangeReplaced(fromPosition, itemCount, toPosition, itemCount);
+        }
+
+        // removes [removedStart, removedStart + removedCount), then inserts insertedCount
+        // positions at insertedStart, a move when both counts are equal and non zero
+        private void onItemRangeReplaced(int removedStart, int removedCount, int insertedStart, int insertedCount) {
+            // rows below the sticky header may have changed height
+            invalidateHeaderUpdate();
+            final boolean move = removedCount > 0 && removedCount == insertedCount;
+
+            final int headerViewCount = wrapperViewList.getHeaderViewsCount();
+            //同一次布局之前的多次变化，沿用第一次记录的顶部偏移
+            int keptPosition = wrapperViewList.getKeptPosition();
+            int keptTop = wrapperViewList.getKeptTop();
+            if (keptPosition == AdapterView.INVALID_POSITION && wrapperViewList.getChildCount() > 0) {
+                keptPosition = wrapperViewList.getFirstVisiblePosition();
+                keptTop = wrapperViewList.getChildAt(0).getTop();
+            }
+            if (keptPosition >= headerViewCount) {
+                int position = shiftPosition(keptPosition - headerViewCount,
+                        removedStart, removedCount, insertedStart, insertedCount, move);
+                // the first visible row is gone, keep the one taking its place
+                if (position == NO_POSITION) {
+                    position = removedStart;
+                }
+                wrapperViewList.keepPosition(position + headerViewCount, keptTop);
+            }
+
+            if (mHeaderPosition == NO_POSITION) {
+                markHeaderDirty();
+                return;
+            }
+            final int headerPosition = shiftPosition(mHeaderPosition,
+                    removedStart, removedCount, insertedStart, insertedCount, move);
+            if (headerPosition == NO_POSITION) {
+                // the row of the header is gone, the next row may still have the same header id
+                markHeaderDirty();
+            } else {
+                mHeaderPosition = headerPosition;
+            }
+        }
+    }
+
+    /**
+     * Returns where the item at {@code position} ends up, or NO_POSITION if it
+     * was removed. Moved items go along with the move.
+     */
+    private static int shiftPosition(int position, int removedStart, int removedCount,
+                                     int insertedStart, int insertedCount, boolean move) {
+        if (position >= removedStart && position < removedStart + removedCount) {
+            return move ? insertedStart + position - removedStart : NO_POSITION;
+        }
+        if (position >= removedStart + removedCount) {
+            position -= removedCount;
+        }
+        if (position >= insertedStart) {
+            position += insertedCount;
+        }
+        return position;
+    }
+
+    //滚动监听，只做标记，真正的更新在绘制前进行
+    private class WrapperListScrollListener implements OnScrollListener {
+        @Override
+        public void onScrollStateChanged(AbsListView view, int scrollState) {
+            if (mOnScrollListenerDelegate != null) {
+                mOnScrollListenerDelegate.onScrollStateChanged(view, scrollState);
+            }
+        }
+
+        @Override
+        public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+            mHeaderUpdatePending = true;
+            if (mAdapter != null) {
+                mAdapter.onVisibleRangeChanged(firstVisibleItem - wrapperViewList.getHeaderViewsCount(),
+                        visibleItemCount);
+            }
+            if (mOnScrollListenerDelegate != null) {
+                mOnScrollListenerDelegate.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
+            }
         }
     }
 
@@ -311,21 +620,252 @@ public class StickyListHeadersListView extends FrameLayout {
                 mAdapter.stickyListHeadersAdapter = null;
             }
             wrapperViewList.setAdapter(null);
+            if (mRowHeightCache != null) {
+                mRowHeightCache.setAdapter(null);
+            }
             clearHeader();
+            clearHeadersByType();
+            invalidateHeaderUpdate();
             return;
         }
         if (mAdapter != null) {
             mAdapter.unregisterDataSetObserver(mDataSetObserver);
+            mAdapter.unregisterItemRangeObserver(mItemRangeObserver);
         }
         if (adapter instanceof SectionIndexer) {
-            mAdapter = new SectionIndexerAdapterWrapper(getContext(), adapter);
+            mAdapter = new SectionIndexerAdapterWrapper(getContext(), adapter, mHeaderPoolCapacity);
         } else {
-            mAdapter = new AdapterWrapper(getContext(), adapter);
+            mAdapter = new AdapterWrapper(getContext(), adapter, mHeaderPoolCapacity);
         }
+        mAdapter.setMetrics(mMetrics);
+        mAdapter.setRowHeightCache(mRowHeightCache);
         mDataSetObserver = new AdapterWrapperDataSetObserver();
         mAdapter.registerDataSetObserver(mDataSetObserver);
+        mItemRangeObserver = new AdapterWrapperItemRangeObserver();
+        mAdapter.registerItemRangeObserver(mItemRangeObserver);
         wrapperViewList.setAdapter(mAdapter);
         clearHeader();
+        clearHeadersByType();
+        invalidateHeaderUpdate();
+        scheduleWarmUp();
+    }
+
+    /**
+     * Opt-in warm up: after every {@link #setAdapter(StickyListHeadersAdapter)}
+     * the given number of header and row views are inflated while the main
+     * looper is idle, one view per idle pass, so the first fling does not have
+     * to inflate them. Headers go into the header pool, so at most
+     * {@link #getHeaderPoolCapacity()} per type are inflated. Pass 0 for both to
+     * turn it off again.
+     */
+    public void setWarmUpCounts(int headerCount, int rowCount) {
+        if (headerCount < 0 || rowCount < 0) {
+            throw new IllegalArgumentException("Counts must not be negative: " + headerCount + ", " + rowCount);
+        }
+        mWarmUpHeaderCount = headerCount;
+        mWarmUpRowCount = rowCount;
+        scheduleWarmUp();
+    }
+
+    private void scheduleWarmUp() {
+        cancelWarmUp();
+        if (mAdapter == null || (mWarmUpHeaderCount == 0 && mWarmUpRowCount == 0)) {
+            return;
+        }
+        mAdapter.setSpareRowCapacity(mWarmUpRowCount);
+        mWarmUpTask = new WarmUpTask(mAdapter, mWarmUpHeaderCount, mWarmUpRowCount);
+        Looper.myQueue().addIdleHandler(mWarmUpTask);
+    }
+
+    private void cancelWarmUp() {
+        if (mWarmUpTask != null) {
+            Looper.myQueue().removeIdleHandler(mWarmUpTask);
+            mWarmUpTask = null;
+        }
+    }
+
+    //每次空闲只创建一个视图，避免占用太长时间
+    private class WarmUpTask implements MessageQueue.IdleHandler {
+        private final AdapterWrapper mWarmedAdapter;
+        private int mHeadersLeft;
+        private int mRowsLeft;
+        private int mHeaderIndex;
+        private int mRowIndex;
+
+        WarmUpTask(AdapterWrapper adapter, int headerCount, int rowCount) {
+            mWarmedAdapter = adapter;
+            mHeadersLeft = headerCount;
+            mRowsLeft = rowCount;
+        }
+
+        @Override
+        public boolean queueIdle() {
+            final int count = mWarmedAdapter.getCount();
+            if (mWarmedAdapter != mAdapter || count == 0) {
+                return finish();
+            }
+            if (mHeadersLeft > 0) {
+                // one header per section, so different header types get their turn
+                final SectionIndex sectionIndex = mWarmedAdapter.getSectionIndex();
+                final int position = sectionIndex != null && sectionIndex.getSectionCount() > 0
+                        ? sectionIndex.getPositionForSection(mHeaderIndex % sectionIndex.getSectionCount())
+                        : mHeaderIndex % count;
+                mHeaderIndex++;
+                mHeadersLeft--;
+                mWarmedAdapter.preInflateHeader(position, wrapperViewList);
+            } else if (mRowsLeft > 0) {
+                mRowsLeft--;
+                if (!mWarmedAdapter.preInflateRow(mRowIndex++ % count, wrapperViewList)) {
+                    mRowsLeft = 0;
+                }
+            }
+            return mHeadersLeft > 0 || mRowsLeft > 0 || finish();
+        }
+
+        private boolean finish() {
+            if (mWarmUpTask == this) {
+                mWarmUpTask = null;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Sets how many detached header views are kept for reuse. Headers dropped
+     * while the pool is full are not retained.
+     */
+    public void setHeaderPoolCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        mHeaderPoolCapacity = capacity;
+        if (mAdapter != null) {
+            mAdapter.getHeaderPool().setCapacity(capacity);
+        }
+    }
+
+    public int getHeaderPoolCapacity() {
+        return mHeaderPoolCapacity;
+    }
+
+    /** Releases all pooled header views, e.g. in response to onTrimMemory. */
+    public void trimHeaderPool() {
+        if (mAdapter != null) {
+            mAdapter.getHeaderPool().clear();
+        }
+    }
+
+    public int getHeaderPoolSize() {
+        return mAdapter == null ? 0 : mAdapter.getHeaderPool().size();
+    }
+
+    public int getHeaderPoolHitCount() {
+        return mAdapter == null ? 0 : mAdapter.getHeaderPool().getHitCount();
+    }
+
+    public int getHeaderPoolMissCount() {
+        return mAdapter == null ? 0 : mAdapter.getHeaderPool().getMissCount();
+    }
+
+    /**
+     * Opt in to render the sticky header into a cached layer. While the list
+     * scrolls only the translation of the layer changes, the header itself is
+     * redrawn when a new header is bound. Has no effect before Honeycomb.
+     */
+    public void setStickyHeaderLayerEnabled(boolean enabled) {
+        mStickyHeaderLayerEnabled = enabled;
+        if (mHeader != null) {
+            setHeaderLayer(mHeader, enabled);
+        }
+    }
+
+    public boolean isStickyHeaderLayerEnabled() {
+        return mStickyHeaderLayerEnabled;
+    }
+
+    public void setOnScrollListener(OnScrollListener onScrollListener) {
+        mOnScrollListenerDelegate = onScrollListener;
+    }
+
+    /**
+     * Enables or disables the runtime metrics. While disabled the only cost is
+     * a null check at every measuring point. Enabling starts from zero.
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled == (mMetrics != null)) {
+            return;
+        }
+        mMetrics = enabled ? new MetricsRecorder() : null;
+        if (mAdapter != null) {
+            mAdapter.setMetrics(mMetrics);
+        }
+    }
+
+    public boolean isMetricsEnabled() {
+        return mMetrics != null;
+    }
+
+    /** Returns the live metrics, or {@code null} if they are disabled. */
+    public StickyListHeadersMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Records the measured height of every row, header included, and sums them
+     * up so the scroll bar follows the real content height and the offset
+     * lookups below stay O(log n) on lists with millions of rows. Rows that
+     * were never on screen count with the average measured height. Heights are
+     * carried over by item id after a data set change if the adapter has stable
+     * ids, and follow their rows through item range changes.
+     */
+    public void setRowHeightCacheEnabled(boolean enabled) {
+        if (enabled == (mRowHeightCache != null)) {
+            return;
+        }
+        mRowHeightCache = enabled ? new RowHeightCache() : null;
+        if (mAdapter != null) {
+            mAdapter.setRowHeightCache(mRowHeightCache);
+        }
+        wrapperViewList.setRowHeightCache(mRowHeightCache);
+    }
+
+    public boolean isRowHeightCacheEnabled() {
+        return mRowHeightCache != null;
+    }
+
+    /**
+     * Returns the distance in pixels from the top of the first row to the top
+     * of {@code position}, or -1 if the row height cache is disabled.
+     */
+    public long getOffsetForPosition(int position) {
+        return mRowHeightCache != null ? mRowHeightCache.getOffset(position) : -1;
+    }
+
+    /**
+     * Returns the position of the row covering {@code offset} pixels below the
+     * top of the first row, or -1 if the row height cache is disabled.
+     */
+    public int getPositionForOffset(long offset) {
+        return mRowHeightCache != null ? mRowHeightCache.getPositionForOffset(offset) : -1;
+    }
+
+    /**
+     * Jumps to {@code offset} pixels below the top of the first row in a single
+     * layout pass. Does nothing if the row height cache is disabled.
+     */
+    public void scrollToOffset(long offset) {
+        final int position = getPositionForOffset(offset);
+        if (position < 0) {
+            return;
+        }
+        //行顶部在列表顶部之上的距离，超过最后一行时不超过行高
+        final long top = mRowHeightCache.getOffset(position) - offset;
+        wrapperViewList.setSelectionFromTop(position + wrapperViewList.getHeaderViewsCount(),
+                (int) Math.max(top, -mRowHeightCache.getHeight(position)));
+    }
+
+    WrapperViewList getWrappedList() {
+        return wrapperViewList;
     }
 
     @Override
@@ -357,6 +897,7 @@ public class StickyListHeadersListView extends FrameLayout {
             wrapperViewList.setClipToPadding(clipToPadding);
         }
         mClippingToPadding = clipToPadding;
+        invalidateHeaderUpdate();
     }
     @Override
     public void setPadding(int left, int top, int right, int bottom) {
@@ -369,6 +910,7 @@ public class StickyListHeadersListView extends FrameLayout {
             wrapperViewList.setPadding(left, top, right, bottom);
         }
         super.setPadding(0, 0, 0, 0);
+        invalidateHeaderUpdate();
         requestLayout();
     }
 
@@ -390,6 +932,86 @@ public class StickyListHeadersListView extends FrameLayout {
         return mPaddingBottom;
     }
 
+    /**
+     * Enables the fast scroll thumb of the list. With an adapter implementing
+     * {@link SectionIndexer} the thumb shows the section labels, which are
+     * looked up in tables built once per data change, so dragging the thumb
+     * does not allocate however long the list is.
+     */
+    public void setFastScrollEnabled(boolean enabled) {
+        wrapperViewList.setFastScrollEnabled(enabled);
+    }
+
+    public boolean isFastScrollEnabled() {
+        return wrapperViewList.isFastScrollEnabled();
+    }
+
+    public void setFastScrollAlwaysVisible(boolean alwaysVisible) {
+        wrapperViewList.setFastScrollAlwaysVisible(alwaysVisible);
+    }
+
+    public boolean isFastScrollAlwaysVisible() {
+        return wrapperViewList.isFastScrollAlwaysVisible();
+    }
+
+    /**
+     * Jumps to the first row of {@code section} so that its header sits where
+     * the sticky header is drawn. The position comes straight from the section
+     * index and is laid out in one pass. Sections out of range are clamped.
+     * Does nothing while the adapter has no section index yet.
+     */
+    public void scrollToSection(int section) {
+        final int position = positionForSection(section);
+        if (position != NO_POSITION) {
+            wrapperViewList.setSelectionFromTop(position, sectionTopOffset());
+        }
+    }
+
+    /**
+     * Like {@link #scrollToSection(int)}, but animated. Targets more than a few
+     * screens away are jumped to first, so only the last part of the way is
+     * animated.
+     */
+    public void smoothScrollToSection(int section) {
+        final int position = positionForSection(section);
+        if (position == NO_POSITION) {
+            return;
+        }
+        final int offset = sectionTopOffset();
+        final int first = wrapperViewList.getFirstVisiblePosition();
+        final int distance = SMOOTH_SCROLL_MAX_PAGES * Math.max(wrapperViewList.getChildCount(), 1);
+        if (Math.abs(position - first) <= distance) {
+            wrapperViewList.smoothScrollToPositionFromTop(position, offset);
+            return;
+        }
+        // 先跳到目标附近，布局完成后再平滑滚动剩下的距离
+        wrapperViewList.setSelectionFromTop(position < first ? position + distance : position - distance, 0);
+        wrapperViewList.post(new Runnable() {
+            @Override
+            public void run() {
+                wrapperViewList.smoothScrollToPositionFromTop(position, offset);
+            }
+        });
+    }
+
+    //分组第一行在封装列表中的位置，没有分组索引时返回NO_POSITION
+    private int positionForSection(int section) {
+        if (mAdapter == null) {
+            return NO_POSITION;
+        }
+        final SectionIndex sectionIndex = mAdapter.getSectionIndex();
+        if (sectionIndex == null || sectionIndex.getSectionCount() == 0) {
+            return NO_POSITION;
+        }
+        section = Math.max(0, Math.min(section, sectionIndex.getSectionCount() - 1));
+        return sectionIndex.getPositionForSection(section) + wrapperViewList.getHeaderViewsCount();
+    }
+
+    //分组第一行自带头布局，行顶部对齐粘性头布局的顶部即可，偏移相对于列表的内边距
+    private int sectionTopOffset() {
+        return stickyHeaderTop() - wrapperViewList.getPaddingTop();
+    }
+
     public void setScrollBarStyle(int style) {
         wrapperViewList.setScrollBarStyle(style);
     }
@@ -0,0 +1,44 @@
+package com.anxpp.titlelistview;
+
+/**
+ * 运行时统计
+ * <p>
+ * Counters of the work done by a {@link StickyListHeadersListView} since the
+ * metrics were enabled or last reset. Times are cumulative wall clock
+ * nanoseconds measured with {@link System#nanoTime()}, a row bind includes the
+ * header bind it triggers.
+ *
+ * @author anxpp.com
+ */
+public interface StickyListHeadersMetrics {
+
+	/** Number of rows bound through the adapter wrapper. */
+	long getRowBindCount();
+
+	long getRowBindNanos();
+
+	/** Number of calls to the adapters getHeaderView(), for rows and the sticky header. */
+	long getHeaderBindCount();
+
+	long getHeaderBindNanos();
+
+	/** Header views taken from the header pool. */
+	long getHeaderPoolHitCount();
+
+	/** Header views asked from the header pool while it had none of the type. */
+	long getHeaderPoolMissCount();
+
+	/** Number of times a different view was attached as the sticky header. */
+	long getHeaderSwapCount();
+
+	/** Number of times a shown sticky header was removed. */
+	long getClearHeaderCount();
+
+	/** Number of header measure passes, the ones skipped thanks to the measure cache not included. */
+	long getHeaderMeasureCount();
+
+	long getHeaderMeasureNanos();
+
+	/** Sets all counters back to zero. */
+	void reset();
+}
@@ -0,0 +1,20 @@
+package com.anxpp.titlelistview;
+
+/**
+ * 可选的可见范围接口
+ * <p>
+ * An adapter implementing this is told which of its positions are on screen
+ * whenever the list scrolls. Unlike the order in which rows are bound, which
+ * goes up and down within one layout pass, the change of the first visible
+ * position tells in which direction the user scrolls.
+ *
+ * @author anxpp.com
+ */
+public interface VisibleRangeAwareAdapter extends StickyListHeadersAdapter {
+
+	/**
+	 * Called on the main thread after the list scrolled or laid out, with the
+	 * first and last adapter positions that are at least partly visible.
+	 */
+	void onVisibleRangeChanged(int firstPosition, int lastPosition);
+}
@@ -21,6 +21,16 @@ public class WrapperView extends ViewGroup {
 	Drawable mDivider;
 	int mDividerHeight;
 	View mHeader;
+	//header view type of mHeader
+	int mHeaderViewType;
+	//header id mHeader is bound to
+	long mHeaderId;
+	//shared header measurements, may be null
+	HeaderMeasureCache mHeaderMeasureCache;
+	//adapter position bound last, -1 for a row that was never bound
+	int mPosition = -1;
+	//records the measured height of this row, may be null
+	RowHeightCache mRowHeightCache;
 	int mItemTop;
 
 	WrapperView(Context c) {
@@ -31,7 +41,7 @@ public class WrapperView extends ViewGroup {
 		return mHeader != null;
 	}
 
-	void update(View item, View header) {
+	void update(View item, View header, int headerViewType, long headerId) {
 		
 		//every wrapperview must have a list item
 		if (item == null) {
@@ -62,6 +72,8 @@ public class WrapperView extends ViewGroup {
 				addView(header);
 			}
 		}
+		this.mHeaderViewType = headerViewType;
+		this.mHeaderId = headerId;
 	}
 
 	@Override
@@ -74,12 +86,16 @@ public class WrapperView extends ViewGroup {
 		//measure header or divider. when there is a header visible it acts as the divider
 		if (mHeader != null) {
 			LayoutParams params = mHeader.getLayoutParams();
+			int headerHeightMeasureSpec;
 			if (params != null && params.height > 0) {
-				mHeader.measure(childWidthMeasureSpec,
-						MeasureSpec.makeMeasureSpec(params.height, MeasureSpec.EXACTLY));
+				headerHeightMeasureSpec = MeasureSpec.makeMeasureSpec(params.height, MeasureSpec.EXACTLY);
 			} else {
-				mHeader.measure(childWidthMeasureSpec,
-						MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+				headerHeightMeasureSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+			}
+			if (mHeaderMeasureCache != null) {
+				mHeaderMeasureCache.measure(mHeader, mHeaderId, childWidthMeasureSpec, headerHeightMeasureSpec);
+			} else {
+				mHeader.measure(childWidthMeasureSpec, headerHeightMeasureSpec);
 			}
 			measuredHeight += mHeader.getMeasuredHeight();
 		} else if (mDivider != null&&mItem.getVisibility()!=View.GONE) {
@@ -104,6 +120,9 @@ public class WrapperView extends ViewGroup {
 
 
 		setMeasuredDimension(measuredWidth, measuredHeight);
+		if (mRowHeightCache != null) {
+			mRowHeightCache.record(mPosition, measuredWidth, measuredHeight);
+		}
 	}
 
 	@Override
@@ -10,8 +10,9 @@ import android.view.View;
 import android.widget.AbsListView;
 import android.widget.ListView;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 /**
  * 封装的带标题的ListView
@@ -26,22 +27,37 @@ class WrapperViewList extends ListView {
 	}
 
 	private LifeCycleListener mLifeCycleListener;
-	private List<View> mFooterViews;
+	//按引用比较的footer集合，判断是否为footer为O(1)
+	private Set<View> mFooterViews;
+	//带头部或者是footer的子视图下标，在布局时记录，避免每次更新头部都遍历所有子视图
+	private int[] mHeaderOrFooterChildren = new int[8];
+	private int mHeaderOrFooterChildCount;
+	//记录时的第一个可见位置和子视图数量，滚动使其变化后重新记录
+	private int mRecordedFirstPosition = -1;
+	private int mRecordedChildCount = -1;
 	private int mTopClippingLength;
 	//Rect类主要用于表示坐标系中的一块矩形区域，并可以对其做一些简单操作
 	//反射失败时使用
 	private Rect mSelectorRect = new Rect();
-	private Field mSelectorPositionField;
+	//反射得到的字段，每个进程只查找一次
+	private static Field sSelectorRectField;
+	private static Field sSelectorPositionField;
+	private static boolean sSelectorFieldsResolved = false;
+	//绘制时复用，避免每帧分配新的Rect
+	private final Rect mClipBounds = new Rect();
 	private boolean mClippingToPadding = true;
 	private boolean mBlockLayoutChildren = false;
+	// item put back at its top offset by the next layout, after item ranges changed
+	private int mKeptPosition = INVALID_POSITION;
+	private int mKeptTop;
+	//记录的行高，为null时滚动条按行数估算
+	private RowHeightCache mRowHeightCache;
 
 	public WrapperViewList(Context context) {
 		this(context,null);
-		init();
 	}
 	public WrapperViewList(Context context, AttributeSet attrs) {
 		this(context, attrs, R.attr.stickyListHeadersListViewStyle);
-		init();
 	}
 	public WrapperViewList(Context context, AttributeSet attrs, int defStyle) {
 		super(context, attrs, defStyle);
@@ -51,6 +67,22 @@ class WrapperViewList extends ListView {
 	private void init(){
 		// 用反射来改变列表的大小/位置
 		// selector so it does not come under/over the header
+		resolveSelectorFields();
+		if (sSelectorRectField != null) {
+			try {
+				mSelectorRect = (Rect) sSelectorRectField.get(this);
+			} catch (IllegalArgumentException | IllegalAccessException e) {
+				Log.e("list",e.getMessage());
+			}
+		}
+	}
+
+	// The fields are the same for every instance, so they are only looked up once
+	private static synchronized void resolveSelectorFields() {
+		if (sSelectorFieldsResolved) {
+			return;
+		}
+		sSelectorFieldsResolved = true;
 		try {
 			//AbsListView用于实现条目的虚拟列表的基类. 这里的列表没有空间的定义
 			//getDeclaredField获取一个类的所有字段
@@ -58,14 +90,15 @@ class WrapperViewList extends ListView {
 			//setAccessible(true)可以访问private域
 			//即修改成员访问权限
 			selectorRectField.setAccessible(true);
-			mSelectorRect = (Rect) selectorRectField.get(this);
+			sSelectorRectField = selectorRectField;
 
 			//1.4以上的
 			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
-				mSelectorPositionField = AbsListView.class.getDeclaredField("mSelectorPosition");
-				mSelectorPositionField.setAccessible(true);
+				Field selectorPositionField = AbsListView.class.getDeclaredField("mSelectorPosition");
+				selectorPositionField.setAccessible(true);
+				sSelectorPositionField = selectorPositionField;
 			}
-		} catch (NoSuchFieldException | IllegalArgumentException | IllegalAccessException e) {
+		} catch (NoSuchFieldException | IllegalArgumentException e) {
 			Log.e("list",e.getMessage());
 		}
 	}
@@ -97,7 +130,7 @@ class WrapperViewList extends ListView {
 
 	//获取选择的位置
 	private int getSelectorPosition() {
-		if (mSelectorPositionField == null) { //不适用于所有android
+		if (sSelectorPositionField == null) { //不适用于所有android
 			//当前版本有这个变量时
 			for (int i = 0; i < getChildCount(); i++) {
 				if (getChildAt(i).getBottom() == mSelectorRect.bottom) {
@@ -106,7 +139,7 @@ class WrapperViewList extends ListView {
 			}
 		} else {
 			try {
-				return mSelectorPositionField.getInt(this);
+				return sSelectorPositionField.getInt(this);
 			} catch (IllegalArgumentException | IllegalAccessException e) {
 				e.printStackTrace();
 			}
@@ -120,15 +153,17 @@ class WrapperViewList extends ListView {
 		positionSelectorRect();
 		if (mTopClippingLength != 0) {
 			canvas.save();
-			Rect clipping = canvas.getClipBounds();
-			clipping.top = mTopClippingLength;
-			canvas.clipRect(clipping);
+			canvas.getClipBounds(mClipBounds);
+			mClipBounds.top = mTopClippingLength;
+			canvas.clipRect(mClipBounds);
 			super.dispatchDraw(canvas);
 			canvas.restore();
 		} else {
 			super.dispatchDraw(canvas);
 		}
-//		mLifeCycleListener.onDispatchDrawOccurred(canvas);
+		if (mLifeCycleListener != null) {
+			mLifeCycleListener.onDispatchDrawOccurred(canvas);
+		}
 	}
 
 	void setLifeCycleListener(LifeCycleListener lifeCycleListener) {
@@ -151,27 +186,112 @@ class WrapperViewList extends ListView {
 
 	private void addInternalFooterView(View v) {
 		if (mFooterViews == null) {
-			mFooterViews = new ArrayList<>();
+			mFooterViews = Collections.newSetFromMap(new IdentityHashMap<View, Boolean>());
 		}
 		mFooterViews.add(v);
+		mRecordedChildCount = -1;
 	}
 
 	@Override
 	public boolean removeFooterView(View v) {
 		if (super.removeFooterView(v)) {
 			mFooterViews.remove(v);
+			mRecordedChildCount = -1;
 			return true;
 		}
 		return false;
 	}
 
 	boolean containsFooterView(View v) {
-		// list.contains(o)，系统会对list中的每个元素e调用o.equals(e)方法
-		// 加入list中有n个元素，那么会调用n次o.equals(e)
-		// 只要有一次o.equals(e)返回了true，那么list.contains(o)返回true，否则返回false
+		// 按引用查找，不调用equals()，与footer数量无关
 		return mFooterViews != null && mFooterViews.contains(v);
 	}
 
+	/** Number of visible children that carry a header or are footers, in layout order. */
+	int getHeaderOrFooterChildCount() {
+		ensureHeaderOrFooterChildren();
+		return mHeaderOrFooterChildCount;
+	}
+
+	View getHeaderOrFooterChildAt(int index) {
+		return getChildAt(mHeaderOrFooterChildren[index]);
+	}
+
+	// Scrolling adds and removes children without going through layoutChildren(),
+	// so the record is also refreshed whenever the visible window moved
+	private void ensureHeaderOrFooterChildren() {
+		if (mRecordedFirstPosition != getFirstVisiblePosition() || mRecordedChildCount != getChildCount()) {
+			recordHeaderOrFooterChildren();
+		}
+	}
+
+	private void recordHeaderOrFooterChildren() {
+		final int childCount = getChildCount();
+		if (mHeaderOrFooterChildren.length < childCount) {
+			mHeaderOrFooterChildren = new int[childCount];
+		}
+		mHeaderOrFooterChildCount = 0;
+		for (int i = 0; i < childCount; i++) {
+			final View child = getChildAt(i);
+			if ((child instanceof WrapperView && ((WrapperView) child).hasHeader()) || containsFooterView(child)) {
+				mHeaderOrFooterChildren[mHeaderOrFooterChildCount++] = i;
+			}
+		}
+		mRecordedFirstPosition = getFirstVisiblePosition();
+		mRecordedChildCount = childCount;
+	}
+
+	void setRowHeightCache(RowHeightCache rowHeightCache) {
+		mRowHeightCache = rowHeightCache;
+		awakenScrollBars();
+	}
+
+	//有行高记录时，滚动条的三个值都按像素计算，和行高是否一致无关
+	@Override
+	protected int computeVerticalScrollRange() {
+		if (!usesRowHeights()) {
+			return super.computeVerticalScrollRange();
+		}
+		return (int) (scrollContentHeight() / scrollScale());
+	}
+
+	@Override
+	protected int computeVerticalScrollExtent() {
+		if (!usesRowHeights()) {
+			return super.computeVerticalScrollExtent();
+		}
+		return (int) (getHeight() / scrollScale());
+	}
+
+	@Override
+	protected int computeVerticalScrollOffset() {
+		if (!usesRowHeights()) {
+			return super.computeVerticalScrollOffset();
+		}
+		final View first = getChildAt(0);
+		// header views of the list are not recorded, they count as part of the first row
+		final int position = getFirstVisiblePosition() - getHeaderViewsCount();
+		long offset = getPaddingTop() - first.getTop();
+		if (position > 0) {
+			offset += mRowHeightCache.getOffset(position);
+		}
+		offset = Math.max(0, Math.min(offset, scrollContentHeight() - getHeight()));
+		return (int) (offset / scrollScale());
+	}
+
+	private boolean usesRowHeights() {
+		return mRowHeightCache != null && isSmoothScrollbarEnabled() && getChildCount() > 0;
+	}
+
+	private long scrollContentHeight() {
+		return getPaddingTop() + mRowHeightCache.getTotalHeight() + getPaddingBottom();
+	}
+
+	// the scroll bar works with ints, very long lists are scaled down to fit
+	private long scrollScale() {
+		return scrollContentHeight() / Integer.MAX_VALUE + 1;
+	}
+
 	void setTopClippingLength(int topClipping) {
 		mTopClippingLength = topClipping;
 	}
@@ -216,10 +336,38 @@ class WrapperViewList extends ListView {
 	//2、移除所有Item
 	//3、根据情况重新填充Item
 	//4、其他处理
+	/**
+	 * Makes the next layout show {@code position} at {@code top}. Item range
+	 * changes call this so the rows the user looks at stay in place while
+	 * rows are inserted or removed above them.
+	 */
+	void keepPosition(int position, int top) {
+		mKeptPosition = position;
+		mKeptTop = top;
+	}
+
+	int getKeptPosition() {
+		return mKeptPosition;
+	}
+
+	/** Top offset the kept position is laid out at, only valid while there is one. */
+	int getKeptTop() {
+		return mKeptTop;
+	}
+
 	@Override
 	protected void layoutChildren() {
 		if (!mBlockLayoutChildren) {
+			if (mKeptPosition != INVALID_POSITION) {
+				// after the data set observer remembered the old first position
+				final int position = Math.min(mKeptPosition, getCount() - 1);
+				mKeptPosition = INVALID_POSITION;
+				if (position >= 0) {
+					setSelectionFromTop(position, mKeptTop);
+				}
+			}
 			super.layoutChildren();
+			recordHeaderOrFooterChildren();
 		}
 	}
 }
@@ -0,0 +1,69 @@
+package com.anxpp.titlelistview.sectioning;
+
+import java.util.Random;
+
+/**
+ * Deterministic data sets for the benchmarks: sorted lists whose sections have
+ * random lengths around a given average.
+ */
+final class BenchmarkData {
+
+	static final int AVERAGE_SECTION_LENGTH = 40;
+	static final int PROBE_COUNT = 1024;
+	private static final long SEED = 42;
+
+	private BenchmarkData() {
+	}
+
+	/** Header id of every position, increasing by one from section to section. */
+	static long[] headerIds(int size) {
+		final Random random = new Random(SEED);
+		final long[] headerIds = new long[size];
+		long headerId = 0;
+		int remaining = 1 + random.nextInt(2 * AVERAGE_SECTION_LENGTH);
+		for (int i = 0; i < size; i++) {
+			if (remaining-- == 0) {
+				headerId++;
+				remaining = random.nextInt(2 * AVERAGE_SECTION_LENGTH);
+			}
+			headerIds[i] = headerId;
+		}
+		return headerIds;
+	}
+
+	/**
+	 * Items whose first character changes where the header id changes. Items of
+	 * one section share a String instance so ten million of them fit in a
+	 * default heap, the section logic only looks at the first character anyway.
+	 */
+	static String[] items(long[] headerIds) {
+		final String[] items = new String[headerIds.length];
+		String item = null;
+		for (int i = 0; i < headerIds.length; i++) {
+			if (i == 0 || headerIds[i] != headerIds[i - 1]) {
+				item = String.valueOf((char) ('A' + headerIds[i])) + "item";
+			}
+			items[i] = item;
+		}
+		return items;
+	}
+
+	/** Section keys that change where the header id changes. */
+	static char[] keys(long[] headerIds) {
+		final char[] keys = new char[headerIds.length];
+		for (int i = 0; i < headerIds.length; i++) {
+			keys[i] = (char) ('A' + headerIds[i]);
+		}
+		return keys;
+	}
+
+	/** Random positions to look up. */
+	static int[] probes(int size) {
+		final Random random = new Random(SEED + 1);
+		final int[] probes = new int[PROBE_COUNT];
+		for (int i = 0; i < probes.length; i++) {
+			probes[i] = random.nextInt(size);
+		}
+		return probes;
+	}
+}
@@ -0,0 +1,76 @@
+package com.anxpp.titlelistview.sectioning;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Section detection and lookups of the initial letter adapter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InitialSectionsBenchmark {
+
+	@Param({"1000", "100000", "1000000", "10000000"})
+	int size;
+
+	private String[] mItems;
+	private int[] mSectionStarts;
+	private int[] mPositionToSection;
+	private int[] mProbes;
+
+	@Setup
+	public void setUp() {
+		mItems = BenchmarkData.items(BenchmarkData.headerIds(size));
+		mSectionStarts = InitialSections.sectionStarts(mItems);
+		mPositionToSection = InitialSections.positionToSection(mSectionStarts, size);
+		mProbes = BenchmarkData.probes(size);
+	}
+
+	@Benchmark
+	public int[] sectionStarts() {
+		return InitialSections.sectionStarts(mItems);
+	}
+
+	@Benchmark
+	public int[] positionToSection() {
+		return InitialSections.positionToSection(mSectionStarts, size);
+	}
+
+	@Benchmark
+	public char[] sectionLetters() {
+		return InitialSections.sectionLetters(mItems, mSectionStarts);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkData.PROBE_COUNT)
+	public void sectionForPositionBinarySearch(Blackhole blackhole) {
+		for (int position : mProbes) {
+			blackhole.consume(InitialSections.sectionForPosition(mSectionStarts, position));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkData.PROBE_COUNT)
+	public void sectionForPositionDenseTable(Blackhole blackhole) {
+		for (int position : mProbes) {
+			blackhole.consume(mPositionToSection[position]);
+		}
+	}
+}
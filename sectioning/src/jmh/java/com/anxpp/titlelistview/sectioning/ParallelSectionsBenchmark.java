@@ -0,0 +1,64 @@
+package com.anxpp.titlelistview.sectioning;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential against fork-join section detection, with the pool size as a
+ * parameter to show how the parallel build scales with the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelSectionsBenchmark {
+
+	@Param({"100000", "1000000", "5000000", "10000000"})
+	int size;
+
+	@Param({"1", "2", "4", "8"})
+	int threads;
+
+	private char[] mKeys;
+	private ForkJoinPool mPool;
+
+	@Setup
+	public void setUp() {
+		mKeys = BenchmarkData.keys(BenchmarkData.headerIds(size));
+		mPool = new ForkJoinPool(threads);
+		if (!Arrays.equals(InitialSections.sectionStarts(mKeys), ParallelSections.sectionStarts(mKeys, mPool))) {
+			throw new IllegalStateException("Parallel build differs from the sequential one");
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		mPool.shutdown();
+	}
+
+	@Benchmark
+	public int[] sequential() {
+		return InitialSections.sectionStarts(mKeys);
+	}
+
+	@Benchmark
+	public int[] parallel() {
+		return ParallelSections.sectionStarts(mKeys, mPool);
+	}
+}
@@ -0,0 +1,97 @@
+package com.anxpp.titlelistview.sectioning;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording heights in and answering the scroll bar and offset questions of
+ * the {@link RowHeights} behind the row height cache of the list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowHeightsBenchmark {
+
+	private static final int ESTIMATE = 48;
+	private static final int BURST_LENGTH = 16;
+
+	@Param({"1000", "100000", "1000000", "10000000"})
+	int size;
+
+	private int[] mProbes;
+	private long[] mOffsetProbes;
+	private RowHeights mHeights;
+
+	@Setup
+	public void setUp() {
+		mProbes = BenchmarkData.probes(size);
+		mHeights = new RowHeights(size, ESTIMATE);
+		// every other row measured, with heights varying around the estimate
+		for (int i = 0; i < size; i += 2) {
+			mHeights.setHeight(i, ESTIMATE / 2 + i % ESTIMATE);
+		}
+		mOffsetProbes = new long[mProbes.length];
+		for (int i = 0; i < mProbes.length; i++) {
+			mOffsetProbes[i] = mHeights.getOffset(mProbes[i]) + 1;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkData.PROBE_COUNT)
+	public void setHeight() {
+		for (int position : mProbes) {
+			// put the old height back, so the state stays the same for the next call
+			final int height = mHeights.getMeasuredHeight(position);
+			mHeights.setHeight(position, height + 1);
+			mHeights.setHeight(position, height);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkData.PROBE_COUNT)
+	public void offsetForPosition(Blackhole blackhole) {
+		for (int position : mProbes) {
+			blackhole.consume(mHeights.getOffset(position));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkData.PROBE_COUNT)
+	public void positionForOffset(Blackhole blackhole) {
+		for (long offset : mOffsetProbes) {
+			blackhole.consume(mHeights.getPositionForOffset(offset));
+		}
+	}
+
+	// a burst of range changes as a diff dispatches it, followed by one query at layout
+	@Benchmark
+	public long rangeBurst() {
+		for (int i = 0; i < BURST_LENGTH; i++) {
+			mHeights.replace(size / 2, 0, 1);
+			mHeights.replace(size / 4, 1, 1);
+			mHeights.replace(size / 2 + 1, 1, 0);
+		}
+		return mHeights.getTotalHeight();
+	}
+
+	@Benchmark
+	public long totalHeight() {
+		return mHeights.getTotalHeight();
+	}
+}
@@ -0,0 +1,86 @@
+package com.anxpp.titlelistview.sectioning;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building, querying and patching the {@link SectionIndex} used by the adapter wrapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SectionIndexBenchmark {
+
+	private static final int UPDATE_LENGTH = 64;
+
+	@Param({"1000", "100000", "1000000", "10000000"})
+	int size;
+
+	private long[] mHeaderIds;
+	private int[] mProbes;
+	private SectionIndex mIndex;
+	private int mUpdateStart;
+	private long[] mUpdateIds;
+
+	@Setup
+	public void setUp() {
+		mHeaderIds = BenchmarkData.headerIds(size);
+		mProbes = BenchmarkData.probes(size);
+		mIndex = build();
+		mUpdateStart = size / 2 - UPDATE_LENGTH / 2;
+		// replacing a range by its own ids leaves the index as it was for the next call
+		mUpdateIds = Arrays.copyOfRange(mHeaderIds, mUpdateStart, mUpdateStart + UPDATE_LENGTH);
+	}
+
+	private SectionIndex build() {
+		final SectionIndex index = new SectionIndex();
+		for (long headerId : mHeaderIds) {
+			index.append(headerId);
+		}
+		return index;
+	}
+
+	@Benchmark
+	public SectionIndex buildIndex() {
+		return build();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkData.PROBE_COUNT)
+	public void sectionForPosition(Blackhole blackhole) {
+		for (int position : mProbes) {
+			blackhole.consume(mIndex.getSectionForPosition(position));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkData.PROBE_COUNT)
+	public void previousPositionHasSameHeader(Blackhole blackhole) {
+		for (int position : mProbes) {
+			blackhole.consume(mIndex.previousPositionHasSameHeader(position));
+		}
+	}
+
+	@Benchmark
+	public SectionIndex updateRange() {
+		mIndex.replace(mUpdateStart, UPDATE_LENGTH, mUpdateIds, UPDATE_LENGTH);
+		return mIndex;
+	}
+}
@@ -0,0 +1,168 @@
+package com.anxpp.titlelistview.sectioning;
+
+import java.util.Arrays;
+
+/**
+ * Immutable list of strings stored in one shared {@code char[]} with an
+ * offset per entry, instead of one String object and one array per entry.
+ * For lists of short strings this takes less than half the heap of a
+ * {@code String[]}.
+ * <p>
+ * Entries are read without creating Strings: single characters through
+ * {@link #charAt(int, int)}, whole entries through a reusable
+ * {@link StringView} or straight from {@link #chars()}, for example with
+ * {@code TextView.setText(char[], int, int)}.
+ *
+ * @author anxpp.com
+ */
+public final class CompactStrings {
+
+	public static final CompactStrings EMPTY = new CompactStrings(new char[0], new int[1], 0);
+
+	private final char[] mChars;
+	// entry i is mChars[mOffsets[i] .. mOffsets[i + 1])
+	private final int[] mOffsets;
+	private final int mSize;
+
+	private CompactStrings(char[] chars, int[] offsets, int size) {
+		mChars = chars;
+		mOffsets = offsets;
+		mSize = size;
+	}
+
+	public static CompactStrings of(String[] items) {
+		int length = 0;
+		for (String item : items) {
+			length += item.length();
+		}
+		final char[] chars = new char[length];
+		final int[] offsets = new int[items.length + 1];
+		int offset = 0;
+		for (int i = 0; i < items.length; i++) {
+			final String item = items[i];
+			item.getChars(0, item.length(), chars, offset);
+			offset += item.length();
+			offsets[i + 1] = offset;
+		}
+		return new CompactStrings(chars, offsets, items.length);
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	/** Index of the first character of entry {@code index} in {@link #chars()}. */
+	public int start(int index) {
+		checkIndex(index);
+		return mOffsets[index];
+	}
+
+	public int length(int index) {
+		checkIndex(index);
+		return mOffsets[index + 1] - mOffsets[index];
+	}
+
+	public char charAt(int index, int charIndex) {
+		final int length = length(index);
+		if (charIndex < 0 || charIndex >= length) {
+			throw new IndexOutOfBoundsException("Char " + charIndex + " of an entry of length " + length);
+		}
+		return mChars[mOffsets[index] + charIndex];
+	}
+
+	/**
+	 * The shared buffer holding all entries back to back. It is handed out for
+	 * reading only, writing to it changes the entries.
+	 */
+	public char[] chars() {
+		return mChars;
+	}
+
+	/** Creates a String holding entry {@code index}. */
+	public String get(int index) {
+		return new String(mChars, start(index), length(index));
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= mSize) {
+			throw new IndexOutOfBoundsException("Index " + index + " of " + mSize + " entries");
+		}
+	}
+
+	/**
+	 * Builds a {@link CompactStrings} from entries added one by one, so the
+	 * entries never have to exist as Strings all at once.
+	 */
+	public static final class Builder {
+
+		private char[] mChars = new char[256];
+		private int[] mOffsets = new int[17];
+		private int mSize;
+
+		public Builder add(CharSequence item) {
+			final int start = mOffsets[mSize];
+			final int length = item.length();
+			if (start + length > mChars.length) {
+				mChars = Arrays.copyOf(mChars, Math.max(start + length, mChars.length * 2));
+			}
+			for (int i = 0; i < length; i++) {
+				mChars[start + i] = item.charAt(i);
+			}
+			if (mSize + 2 > mOffsets.length) {
+				mOffsets = Arrays.copyOf(mOffsets, mOffsets.length * 2);
+			}
+			mOffsets[++mSize] = start + length;
+			return this;
+		}
+
+		public CompactStrings build() {
+			return new CompactStrings(Arrays.copyOf(mChars, mOffsets[mSize]),
+					Arrays.copyOf(mOffsets, mSize + 1), mSize);
+		}
+	}
+
+	/**
+	 * A CharSequence showing one entry of a {@link CompactStrings}. It can be
+	 * pointed at another entry with {@link #set(CompactStrings, int)}, so one
+	 * view serves any number of reads.
+	 */
+	public static final class StringView implements CharSequence {
+
+		private char[] mChars = EMPTY.mChars;
+		private int mStart;
+		private int mLength;
+
+		public StringView set(CompactStrings strings, int index) {
+			mChars = strings.mChars;
+			mStart = strings.start(index);
+			mLength = strings.length(index);
+			return this;
+		}
+
+		@Override
+		public int length() {
+			return mLength;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= mLength) {
+				throw new IndexOutOfBoundsException("Char " + index + " of " + mLength);
+			}
+			return mChars[mStart + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || end > mLength || start > end) {
+				throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of " + mLength);
+			}
+			return new String(mChars, mStart + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(mChars, mStart, mLength);
+		}
+	}
+}
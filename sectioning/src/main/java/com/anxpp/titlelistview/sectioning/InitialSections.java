@@ -0,0 +1,103 @@
+package com.anxpp.titlelistview.sectioning;
+
+import java.util.Arrays;
+
+/**
+ * Sections of a list grouped by the first character of every item, as used
+ * by the initial letter adapter. The items are expected to be sorted so that
+ * items sharing a first character are adjacent.
+ *
+ * @author anxpp.com
+ */
+public final class InitialSections {
+
+	private InitialSections() {
+	}
+
+	/** Returns the first position of every run of items starting with the same character. */
+	public static int[] sectionStarts(String[] items) {
+		if (items.length == 0) {
+			return new int[0];
+		}
+		int[] starts = new int[16];
+		int sectionCount = 1;
+		char lastFirstChar = items[0].charAt(0);
+		for (int i = 1; i < items.length; i++) {
+			final char firstChar = items[i].charAt(0);
+			if (firstChar != lastFirstChar) {
+				lastFirstChar = firstChar;
+				if (sectionCount == starts.length) {
+					starts = Arrays.copyOf(starts, sectionCount * 2);
+				}
+				starts[sectionCount++] = i;
+			}
+		}
+		return Arrays.copyOf(starts, sectionCount);
+	}
+
+	/** Returns the first position of every run of equal keys, see {@link SectionKeys}. */
+	public static int[] sectionStarts(char[] keys) {
+		if (keys.length == 0) {
+			return new int[0];
+		}
+		int[] starts = new int[16];
+		int sectionCount = 1;
+		char lastKey = keys[0];
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i] != lastKey) {
+				lastKey = keys[i];
+				if (sectionCount == starts.length) {
+					starts = Arrays.copyOf(starts, sectionCount * 2);
+				}
+				starts[sectionCount++] = i;
+			}
+		}
+		return Arrays.copyOf(starts, sectionCount);
+	}
+
+	/** Returns the key of every section. */
+	public static char[] sectionLetters(char[] keys, int[] sectionStarts) {
+		final char[] letters = new char[sectionStarts.length];
+		for (int i = 0; i < sectionStarts.length; i++) {
+			letters[i] = keys[sectionStarts[i]];
+		}
+		return letters;
+	}
+
+	/** Returns a table holding the section of every one of {@code itemCount} positions. */
+	public static int[] positionToSection(int[] sectionStarts, int itemCount) {
+		final int[] sections = new int[itemCount];
+		for (int section = 0; section < sectionStarts.length; section++) {
+			final int end = section + 1 < sectionStarts.length ? sectionStarts[section + 1] : itemCount;
+			Arrays.fill(sections, sectionStarts[section], end, section);
+		}
+		return sections;
+	}
+
+	/** Returns the first character of every section. */
+	public static char[] sectionLetters(String[] items, int[] sectionStarts) {
+		final char[] letters = new char[sectionStarts.length];
+		for (int i = 0; i < sectionStarts.length; i++) {
+			letters[i] = items[sectionStarts[i]].charAt(0);
+		}
+		return letters;
+	}
+
+	/**
+	 * Returns the section containing {@code position} by a binary search over
+	 * {@code sectionStarts}, or -1 if it lies before the first section.
+	 */
+	public static int sectionForPosition(int[] sectionStarts, int position) {
+		int low = 0;
+		int high = sectionStarts.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (sectionStarts[mid] <= position) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+}
@@ -0,0 +1,139 @@
+package com.anxpp.titlelistview.sectioning;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join version of {@link InitialSections#sectionStarts(char[])} for very
+ * long lists. The keys are split into chunks, one pass counts the section
+ * starts of every chunk and a second pass writes them into one array at the
+ * offsets given by the counts. A chunk compares its first key with the last
+ * key of the chunk before it, so sections spanning chunk edges come out the
+ * same as from the sequential loop.
+ *
+ * @author anxpp.com
+ */
+public final class ParallelSections {
+
+	/** Lists shorter than this are not worth splitting. */
+	public static final int PARALLEL_THRESHOLD = 1 << 16;
+	// smallest number of keys a single task works on
+	private static final int MIN_CHUNK_LENGTH = 1 << 14;
+	// chunks per worker, so a slow worker does not hold up the rest
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private ParallelSections() {
+	}
+
+	private static final class DefaultPoolHolder {
+		static final ForkJoinPool POOL = new ForkJoinPool();
+	}
+
+	/** Shared pool with one worker per core. */
+	public static ForkJoinPool defaultPool() {
+		return DefaultPoolHolder.POOL;
+	}
+
+	/** Same as {@link #sectionStarts(char[], ForkJoinPool)} on the {@link #defaultPool()}. */
+	public static int[] sectionStarts(char[] keys) {
+		return sectionStarts(keys, defaultPool());
+	}
+
+	/**
+	 * Returns the first position of every run of equal keys, exactly as
+	 * {@link InitialSections#sectionStarts(char[])} does.
+	 */
+	public static int[] sectionStarts(char[] keys, ForkJoinPool pool) {
+		final int chunkCount = Math.min(pool.getParallelism() * CHUNKS_PER_THREAD,
+				keys.length / MIN_CHUNK_LENGTH);
+		if (keys.length < PARALLEL_THRESHOLD || chunkCount < 2) {
+			return InitialSections.sectionStarts(keys);
+		}
+		final int[] chunkStarts = new int[chunkCount + 1];
+		for (int i = 0; i <= chunkCount; i++) {
+			chunkStarts[i] = (int) ((long) keys.length * i / chunkCount);
+		}
+
+		final int[] counts = new int[chunkCount];
+		pool.invoke(new ChunkTask(keys, chunkStarts, 0, chunkCount, counts, null, null));
+
+		// offsets[i] is where the section starts of chunk i go
+		final int[] offsets = new int[chunkCount];
+		int total = 0;
+		for (int i = 0; i < chunkCount; i++) {
+			offsets[i] = total;
+			total += counts[i];
+		}
+		final int[] starts = new int[total];
+		pool.invoke(new ChunkTask(keys, chunkStarts, 0, chunkCount, counts, offsets, starts));
+		return starts;
+	}
+
+	/**
+	 * Counts the section starts of the chunks {@code [fromChunk, toChunk)}, or
+	 * writes them out once {@code offsets} are known.
+	 */
+	private static final class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final char[] mKeys;
+		private final int[] mChunkStarts;
+		private final int mFromChunk;
+		private final int mToChunk;
+		private final int[] mCounts;
+		private final int[] mOffsets;
+		private final int[] mStarts;
+
+		ChunkTask(char[] keys, int[] chunkStarts, int fromChunk, int toChunk, int[] counts,
+				  int[] offsets, int[] starts) {
+			mKeys = keys;
+			mChunkStarts = chunkStarts;
+			mFromChunk = fromChunk;
+			mToChunk = toChunk;
+			mCounts = counts;
+			mOffsets = offsets;
+			mStarts = starts;
+		}
+
+		@Override
+		protected void compute() {
+			if (mToChunk - mFromChunk == 1) {
+				if (mStarts == null) {
+					mCounts[mFromChunk] = count(mChunkStarts[mFromChunk], mChunkStarts[mFromChunk + 1]);
+				} else {
+					write(mChunkStarts[mFromChunk], mChunkStarts[mFromChunk + 1], mOffsets[mFromChunk]);
+				}
+				return;
+			}
+			final int middle = (mFromChunk + mToChunk) >>> 1;
+			invokeAll(new ChunkTask(mKeys, mChunkStarts, mFromChunk, middle, mCounts, mOffsets, mStarts),
+					new ChunkTask(mKeys, mChunkStarts, middle, mToChunk, mCounts, mOffsets, mStarts));
+		}
+
+		// position 0 always starts a section, any other one if its key differs from the one before
+		private int count(int from, int to) {
+			final char[] keys = mKeys;
+			int count = from == 0 ? 1 : 0;
+			for (int i = Math.max(from, 1); i < to; i++) {
+				if (keys[i] != keys[i - 1]) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		private void write(int from, int to, int offset) {
+			final char[] keys = mKeys;
+			final int[] starts = mStarts;
+			if (from == 0) {
+				starts[offset++] = 0;
+			}
+			for (int i = Math.max(from, 1); i < to; i++) {
+				if (keys[i] != keys[i - 1]) {
+					starts[offset++] = i;
+				}
+			}
+		}
+	}
+}
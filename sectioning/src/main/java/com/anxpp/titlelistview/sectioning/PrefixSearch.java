@@ -0,0 +1,162 @@
+package com.anxpp.titlelistview.sectioning;
+
+import java.util.Arrays;
+
+/**
+ * Type-ahead search for the entries of a {@link CompactStrings} starting
+ * with a prefix, ignoring case. The entries are ranked in case-folded order
+ * once, after which the matches of any prefix are a contiguous range of
+ * ranks. Every character typed narrows the range of the previous prefix with
+ * two binary searches on that character alone, and the ranges of all shorter
+ * prefixes are kept, so deleting characters costs nothing.
+ *
+ * @author anxpp.com
+ */
+public final class PrefixSearch {
+
+	private final CompactStrings mItems;
+	// entry of every rank, null if the entries are already in case-folded order
+	private final int[] mOrder;
+	// folded prefix typed so far, and the range of ranks matching each of its lengths
+	private char[] mPrefix = new char[16];
+	private int[] mStarts = new int[17];
+	private int[] mEnds = new int[17];
+	private int mPrefixLength;
+
+	public PrefixSearch(CompactStrings items) {
+		mItems = items;
+		mOrder = isInFoldedOrder(items) ? null : sortByFoldedOrder(items);
+		mStarts[0] = 0;
+		mEnds[0] = items.size();
+	}
+
+	/**
+	 * Returns {@code true} if the ranks are the entry indices, in which case
+	 * the matches of a prefix are the entries {@code [getStart(), getEnd())}.
+	 */
+	public boolean isInItemOrder() {
+		return mOrder == null;
+	}
+
+	/** Returns the entry at {@code rank} in case-folded order. */
+	public int itemAt(int rank) {
+		return mOrder == null ? rank : mOrder[rank];
+	}
+
+	/** First rank matching the current prefix. */
+	public int getStart() {
+		return mStarts[mPrefixLength];
+	}
+
+	/** Rank after the last one matching the current prefix. */
+	public int getEnd() {
+		return mEnds[mPrefixLength];
+	}
+
+	/**
+	 * Changes the prefix. The ranges of the characters it shares with the
+	 * previous prefix are reused, only the characters after them are searched.
+	 */
+	public void setPrefix(CharSequence prefix) {
+		final int length = prefix.length();
+		int common = 0;
+		while (common < mPrefixLength && common < length && mPrefix[common] == fold(prefix.charAt(common))) {
+			common++;
+		}
+		mPrefixLength = common;
+		if (length + 1 > mStarts.length) {
+			final int capacity = Math.max(length + 1, mStarts.length * 2);
+			mPrefix = Arrays.copyOf(mPrefix, capacity - 1);
+			mStarts = Arrays.copyOf(mStarts, capacity);
+			mEnds = Arrays.copyOf(mEnds, capacity);
+		}
+		while (mPrefixLength < length) {
+			narrow(fold(prefix.charAt(mPrefixLength)));
+		}
+	}
+
+	// entries in the current range agree on their first mPrefixLength folded chars
+	private void narrow(char c) {
+		final int depth = mPrefixLength;
+		final int start = firstRankWithCharAtLeast(mStarts[depth], mEnds[depth], depth, c);
+		final int end = firstRankWithCharAtLeast(start, mEnds[depth], depth, c + 1);
+		mPrefix[depth] = c;
+		mStarts[depth + 1] = start;
+		mEnds[depth + 1] = end;
+		mPrefixLength++;
+	}
+
+	private int firstRankWithCharAtLeast(int from, int to, int charIndex, int c) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (foldedCharAt(itemAt(mid), charIndex) < c) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	// -1 past the end of an entry, so shorter entries rank first
+	private int foldedCharAt(int item, int charIndex) {
+		return charIndex < mItems.length(item) ? fold(mItems.charAt(item, charIndex)) : -1;
+	}
+
+	private static char fold(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	private static int compareFolded(CompactStrings items, int a, int b) {
+		final int lengthA = items.length(a);
+		final int lengthB = items.length(b);
+		final int length = Math.min(lengthA, lengthB);
+		for (int i = 0; i < length; i++) {
+			final char ca = fold(items.charAt(a, i));
+			final char cb = fold(items.charAt(b, i));
+			if (ca != cb) {
+				return ca - cb;
+			}
+		}
+		return lengthA - lengthB;
+	}
+
+	private static boolean isInFoldedOrder(CompactStrings items) {
+		for (int i = 1; i < items.size(); i++) {
+			if (compareFolded(items, i - 1, i) > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// stable merge sort of the entry indices
+	private static int[] sortByFoldedOrder(CompactStrings items) {
+		int[] order = new int[items.size()];
+		int[] buffer = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		for (int width = 1; width < order.length; width *= 2) {
+			for (int from = 0; from < order.length; from += 2 * width) {
+				final int middle = Math.min(from + width, order.length);
+				final int to = Math.min(from + 2 * width, order.length);
+				int left = from;
+				int right = middle;
+				for (int i = from; i < to; i++) {
+					if (left < middle && (right >= to || compareFolded(items, order[left], order[right]) <= 0)) {
+						buffer[i] = order[left++];
+					} else {
+						buffer[i] = order[right++];
+					}
+				}
+			}
+			final int[] swap = order;
+			order = buffer;
+			buffer = swap;
+		}
+		return order;
+	}
+}
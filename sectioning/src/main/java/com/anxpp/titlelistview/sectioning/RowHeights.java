@@ -0,0 +1,265 @@
+package com.anxpp.titlelistview.sectioning;
+
+import java.util.Arrays;
+
+/**
+ * Measured row heights of a list with prefix sums over them, so the pixel
+ * offset of a position and the position at a pixel offset are found in
+ * O(log n) however long the list is.
+ * <p>
+ * Rows that were not measured yet count with an estimated height, the average
+ * of the measured rows, or the default estimate while no row is measured.
+ * The measured heights and the number of measured rows are kept in two
+ * Fenwick trees, so the estimate can change with every measurement without
+ * touching the unmeasured rows. Changed rows are forgotten with one tree
+ * update each. Inserted, removed and moved rows only shift the heights in
+ * arrays that grow geometrically, the trees are rebuilt in O(n) by the next
+ * query, so a burst of structural changes costs a single rebuild.
+ *
+ * @author anxpp.com
+ */
+public final class RowHeights {
+
+	/** Height of a row that was not measured yet. */
+	public static final int UNKNOWN = -1;
+
+	//height of every row, UNKNOWN if not measured, the capacity may exceed mCount
+	private int[] mHeights;
+	//Fenwick trees, 1-based: sum of the measured heights and count of measured rows
+	private long[] mHeightTree;
+	private int[] mMeasuredTree;
+	private int mCount;
+	private long mMeasuredHeight;
+	private int mMeasuredCount;
+	private int mDefaultEstimate;
+	//false after a structural change until the next query rebuilds the trees and sums
+	private boolean mTreesValid = true;
+
+	public RowHeights(int count, int defaultEstimate) {
+		if (count < 0) {
+			throw new IllegalArgumentException("Count must not be negative: " + count);
+		}
+		mDefaultEstimate = defaultEstimate;
+		mCount = count;
+		mHeights = new int[count];
+		mHeightTree = new long[count + 1];
+		mMeasuredTree = new int[count + 1];
+		Arrays.fill(mHeights, UNKNOWN);
+	}
+
+	private void ensureCapacity(int count) {
+		if (count > mHeights.length) {
+			final int capacity = Math.max(count, mHeights.length + (mHeights.length >> 1));
+			mHeights = Arrays.copyOf(mHeights, capacity);
+			// rebuilt from the heights anyway
+			mHeightTree = new long[capacity + 1];
+			mMeasuredTree = new int[capacity + 1];
+			mTreesValid = false;
+		}
+	}
+
+	public int getCount() {
+		return mCount;
+	}
+
+	public int getDefaultEstimate() {
+		return mDefaultEstimate;
+	}
+
+	public void setDefaultEstimate(int defaultEstimate) {
+		mDefaultEstimate = defaultEstimate;
+	}
+
+	/** Height counted for rows that were not measured yet. */
+	public int getEstimate() {
+		ensureTrees();
+		return mMeasuredCount > 0 ? (int) (mMeasuredHeight / mMeasuredCount) : mDefaultEstimate;
+	}
+
+	public int getMeasuredCount() {
+		ensureTrees();
+		return mMeasuredCount;
+	}
+
+	/** Returns the measured height of {@code position}, or {@link #UNKNOWN}. */
+	public int getMeasuredHeight(int position) {
+		checkPosition(position);
+		return mHeights[position];
+	}
+
+	/** Returns the measured or, if not measured yet, the estimated height of {@code position}. */
+	public int getHeight(int position) {
+		checkPosition(position);
+		return mHeights[position] != UNKNOWN ? mHeights[position] : getEstimate();
+	}
+
+	/** Records the height of {@code position}, {@link #UNKNOWN} forgets it. */
+	public void setHeight(int position, int height) {
+		checkPosition(position);
+		if (height < 0 && height != UNKNOWN) {
+			throw new IllegalArgumentException("Height must not be negative: " + height);
+		}
+		final int old = mHeights[position];
+		if (old == height) {
+			return;
+		}
+		mHeights[position] = height;
+		if (!mTreesValid) {
+			return;
+		}
+		final long heightDelta = (height != UNKNOWN ? height : 0) - (old != UNKNOWN ? old : 0);
+		final int measuredDelta = (height != UNKNOWN ? 1 : 0) - (old != UNKNOWN ? 1 : 0);
+		for (int i = position + 1; i <= mCount; i += i & -i) {
+			mHeightTree[i] += heightDelta;
+			mMeasuredTree[i] += measuredDelta;
+		}
+		mMeasuredHeight += heightDelta;
+		mMeasuredCount += measuredDelta;
+	}
+
+	/** Returns the sum of the heights of all rows before {@code position}, which may be {@link #getCount()}. */
+	public long getOffset(int position) {
+		if (position < 0 || position > mCount) {
+			throw new IndexOutOfBoundsException("Position " + position + " outside of " + mCount + " rows");
+		}
+		ensureTrees();
+		long height = 0;
+		int measured = 0;
+		for (int i = position; i > 0; i -= i & -i) {
+			height += mHeightTree[i];
+			measured += mMeasuredTree[i];
+		}
+		return height + (long) (position - measured) * getEstimate();
+	}
+
+	public long getTotalHeight() {
+		ensureTrees();
+		return mMeasuredHeight + (long) (mCount - mMeasuredCount) * getEstimate();
+	}
+
+	/**
+	 * Returns the row covering the pixel {@code offset}, measured from the top
+	 * of the first row. Offsets before the first row return 0 and offsets past
+	 * the last row return the last position, an empty list returns -1.
+	 */
+	public int getPositionForOffset(long offset) {
+		if (mCount == 0) {
+			return -1;
+		}
+		if (offset < 0) {
+			return 0;
+		}
+		ensureTrees();
+		final long estimate = getEstimate();
+		// descend the trees, the sum of both is ascending in the position
+		int position = 0;
+		long remaining = offset;
+		for (int step = Integer.highestOneBit(mCount); step > 0; step >>= 1) {
+			final int next = position + step;
+			if (next <= mCount) {
+				final long span = mHeightTree[next] + (step - mMeasuredTree[next]) * estimate;
+				if (span <= remaining) {
+					position = next;
+					remaining -= span;
+				}
+			}
+		}
+		return Math.min(position, mCount - 1);
+	}
+
+	/** Forgets all measured heights, keeping the row count. */
+	public void clear() {
+		Arrays.fill(mHeights, 0, mCount, UNKNOWN);
+		Arrays.fill(mHeightTree, 0, mCount + 1, 0);
+		Arrays.fill(mMeasuredTree, 0, mCount + 1, 0);
+		mMeasuredHeight = 0;
+		mMeasuredCount = 0;
+		mTreesValid = true;
+	}
+
+	/** Forgets the heights of the {@code count} rows starting at {@code start}, one tree update each. */
+	public void forget(int start, int count) {
+		if (start < 0 || count < 0 || start + count > mCount) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + (start + count)
+					+ ") outside of " + mCount + " rows");
+		}
+		for (int i = start; i < start + count; i++) {
+			setHeight(i, UNKNOWN);
+		}
+	}
+
+	/**
+	 * Replaces the {@code removedCount} rows starting at {@code start} with
+	 * {@code insertedCount} unmeasured rows, keeping the heights of the rows
+	 * before and after the range. Replacing rows by as many rows only forgets
+	 * their heights.
+	 */
+	public void replace(int start, int removedCount, int insertedCount) {
+		final int end = start + removedCount;
+		if (start < 0 || removedCount < 0 || insertedCount < 0 || end > mCount) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end
+					+ ") outside of " + mCount + " rows");
+		}
+		if (removedCount == insertedCount) {
+			forget(start, insertedCount);
+			return;
+		}
+		final int newCount = mCount - removedCount + insertedCount;
+		ensureCapacity(newCount);
+		System.arraycopy(mHeights, end, mHeights, start + insertedCount, mCount - end);
+		Arrays.fill(mHeights, start, start + insertedCount, UNKNOWN);
+		mCount = newCount;
+		mTreesValid = false;
+	}
+
+	/** Moves {@code count} rows from {@code from} so that they start at {@code to} afterwards. */
+	public void move(int from, int to, int count) {
+		if (count < 0 || from < 0 || to < 0 || from + count > mCount || to + count > mCount) {
+			throw new IndexOutOfBoundsException("Moving " + count + " rows from " + from
+					+ " to " + to + " outside of " + mCount + " rows");
+		}
+		if (from == to || count == 0) {
+			return;
+		}
+		final int[] moved = Arrays.copyOfRange(mHeights, from, from + count);
+		if (from < to) {
+			System.arraycopy(mHeights, from + count, mHeights, from, to - from);
+		} else {
+			System.arraycopy(mHeights, to, mHeights, to + count, from - to);
+		}
+		System.arraycopy(moved, 0, mHeights, to, count);
+		mTreesValid = false;
+	}
+
+	// builds both trees from mHeights in O(n) after a structural change
+	private void ensureTrees() {
+		if (mTreesValid) {
+			return;
+		}
+		mTreesValid = true;
+		Arrays.fill(mHeightTree, 0, mCount + 1, 0);
+		Arrays.fill(mMeasuredTree, 0, mCount + 1, 0);
+		mMeasuredHeight = 0;
+		mMeasuredCount = 0;
+		for (int i = 1; i <= mCount; i++) {
+			final int height = mHeights[i - 1];
+			if (height != UNKNOWN) {
+				mHeightTree[i] += height;
+				mMeasuredTree[i]++;
+				mMeasuredHeight += height;
+				mMeasuredCount++;
+			}
+			final int parent = i + (i & -i);
+			if (parent <= mCount) {
+				mHeightTree[parent] += mHeightTree[i];
+				mMeasuredTree[parent] += mMeasuredTree[i];
+			}
+		}
+	}
+
+	private void checkPosition(int position) {
+		if (position < 0 || position >= mCount) {
+			throw new IndexOutOfBoundsException("Position " + position + " outside of " + mCount + " rows");
+		}
+	}
+}
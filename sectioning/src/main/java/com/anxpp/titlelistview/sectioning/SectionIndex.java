@@ -0,0 +1,138 @@
+package com.anxpp.titlelistview.sectioning;
+
+import java.util.Arrays;
+
+/**
+ * Compact index of the positions at which a new header section starts.
+ * It is filled once per data set change by appending the header id of
+ * every position in order, after which all section questions are answered
+ * with a binary search over the section starts instead of calling back into
+ * the adapter.
+ *
+ * @author anxpp.com
+ */
+public final class SectionIndex {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	//first position of every section, ascending
+	private int[] mStarts = new int[INITIAL_CAPACITY];
+	//header id of every section, parallel to mStarts
+	private long[] mHeaderIds = new long[INITIAL_CAPACITY];
+	private int mSectionCount;
+	private int mItemCount;
+
+	public void clear() {
+		mSectionCount = 0;
+		mItemCount = 0;
+	}
+
+	/** Appends the next position with the given header id. */
+	public void append(long headerId) {
+		if (mSectionCount == 0 || mHeaderIds[mSectionCount - 1] != headerId) {
+			ensureCapacity(mSectionCount + 1);
+			mStarts[mSectionCount] = mItemCount;
+			mHeaderIds[mSectionCount] = headerId;
+			mSectionCount++;
+		}
+		mItemCount++;
+	}
+
+	/**
+	 * Replaces the {@code removedCount} positions starting at {@code start} with
+	 * {@code insertedCount} positions having the header ids in {@code headerIds}.
+	 * Sections before and after the range are kept, and merged with the new
+	 * positions where the header ids match.
+	 */
+	public void replace(int start, int removedCount, long[] headerIds, int insertedCount) {
+		final int end = start + removedCount;
+		if (start < 0 || removedCount < 0 || end > mItemCount) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end
+					+ ") outside of " + mItemCount + " positions");
+		}
+
+		// keep the sections describing everything after the range
+		final int tailSection = end < mItemCount ? getSectionForPosition(end) : mSectionCount;
+		final int tailLength = mSectionCount - tailSection;
+		final int[] tailStarts = Arrays.copyOfRange(mStarts, tailSection, mSectionCount);
+		final long[] tailIds = Arrays.copyOfRange(mHeaderIds, tailSection, mSectionCount);
+		if (tailLength > 0) {
+			tailStarts[0] = end;
+		}
+		final int newItemCount = mItemCount - removedCount + insertedCount;
+
+		// cut everything from start on, then append the new positions and the tail
+		mSectionCount = start > 0 ? getSectionForPosition(start - 1) + 1 : 0;
+		mItemCount = start;
+		for (int i = 0; i < insertedCount; i++) {
+			append(headerIds[i]);
+		}
+		final int delta = insertedCount - removedCount;
+		for (int i = 0; i < tailLength; i++) {
+			if (mSectionCount == 0 || mHeaderIds[mSectionCount - 1] != tailIds[i]) {
+				ensureCapacity(mSectionCount + 1);
+				mStarts[mSectionCount] = tailStarts[i] + delta;
+				mHeaderIds[mSectionCount] = tailIds[i];
+				mSectionCount++;
+			}
+		}
+		mItemCount = newItemCount;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > mStarts.length) {
+			int newCapacity = Math.max(capacity, mStarts.length * 2);
+			mStarts = Arrays.copyOf(mStarts, newCapacity);
+			mHeaderIds = Arrays.copyOf(mHeaderIds, newCapacity);
+		}
+	}
+
+	public int getItemCount() {
+		return mItemCount;
+	}
+
+	public int getSectionCount() {
+		return mSectionCount;
+	}
+
+	/** Returns the section containing {@code position}, or -1 if the index is empty. */
+	public int getSectionForPosition(int position) {
+		int low = 0;
+		int high = mSectionCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (mStarts[mid] <= position) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	public int getPositionForSection(int section) {
+		return mStarts[section];
+	}
+
+	public long getHeaderIdForSection(int section) {
+		return mHeaderIds[section];
+	}
+
+	public long getHeaderId(int position) {
+		return mHeaderIds[getSectionForPosition(position)];
+	}
+
+	/** Returns {@code true} if {@code position} is the first position of its section. */
+	public boolean isSectionStart(int position) {
+		int section = getSectionForPosition(position);
+		return section >= 0 && mStarts[section] == position;
+	}
+
+	/**
+	 * Returns {@code true} if the previous position has the same header id,
+	 * that is if {@code position} is shown without a header of its own.
+	 */
+	public boolean previousPositionHasSameHeader(int position) {
+		return position != 0 && !isSectionStart(position);
+	}
+}
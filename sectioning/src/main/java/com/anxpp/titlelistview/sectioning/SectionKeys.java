@@ -0,0 +1,137 @@
+package com.anxpp.titlelistview.sectioning;
+
+import java.text.Collator;
+import java.util.Locale;
+
+/**
+ * Computes the bucket letter an item is grouped under, once per item, so
+ * header ids and section labels can be read from a {@code char[]} instead
+ * of being worked out on every call.
+ * <p>
+ * Letters are bucketed by locale aware collation against the boundaries
+ * "A" to "Z", which folds case and accents. With {@link #pinyin()} Chinese
+ * characters are bucketed under the initial of their pinyin, by collating
+ * them against the first character of every initial in Chinese order.
+ * Everything else goes to {@link #OTHER}. Only the first character of an
+ * item decides its bucket, and the bucket of every character is cached, so
+ * computing the keys of a data set again costs one table lookup per item.
+ *
+ * @author anxpp.com
+ */
+public final class SectionKeys {
+
+	/** Bucket of items that do not start with a letter. */
+	public static final char OTHER = '#';
+
+	private static final String LATIN_LABELS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+	// first character of every pinyin initial in the pinyin collation of ICU, which
+	// backs java.text.Collator on Android, every character before it sorts under
+	// the previous initial
+	static final String PINYIN_BOUNDARIES = "阿八嚓哒妸发旮哈讥咔垃痳拏噢妑七呥扨它穵夕丫帀";
+	// no syllable starts with I, U or V
+	static final String PINYIN_LABELS = "ABCDEFGHJKLMNOPQRSTWXYZ";
+	private static final char HAN_FIRST = '一';
+	private static final char HAN_LAST = '鿿';
+	// bucket cache, 0 for a character not seen yet
+	private static final char UNKNOWN = 0;
+
+	private final Collator mCollator;
+	private final String[] mLatinBoundaries;
+	private final String[] mHanBoundaries;
+	private final char[] mBuckets = new char[Character.MAX_VALUE + 1];
+
+	private SectionKeys(Collator collator, boolean pinyin) {
+		mCollator = collator;
+		mCollator.setStrength(Collator.PRIMARY);
+		mLatinBoundaries = split(LATIN_LABELS);
+		mHanBoundaries = pinyin ? split(PINYIN_BOUNDARIES) : null;
+	}
+
+	private static String[] split(String chars) {
+		final String[] strings = new String[chars.length()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = String.valueOf(chars.charAt(i));
+		}
+		return strings;
+	}
+
+	/** Buckets letters by the collation of {@code locale}. */
+	public static SectionKeys forLocale(Locale locale) {
+		if (Locale.CHINESE.getLanguage().equals(locale.getLanguage())) {
+			return pinyin();
+		}
+		return new SectionKeys(Collator.getInstance(locale), false);
+	}
+
+	/** Buckets letters under A to Z and Chinese characters under their pinyin initial. */
+	public static SectionKeys pinyin() {
+		return pinyin(Collator.getInstance(Locale.CHINA));
+	}
+
+	// the collator decides where the boundaries fall, tests pass one with known rules
+	static SectionKeys pinyin(Collator collator) {
+		return new SectionKeys(collator, true);
+	}
+
+	/** Returns the bucket of every item. */
+	public char[] keys(String[] items) {
+		final char[] keys = new char[items.length];
+		for (int i = 0; i < items.length; i++) {
+			keys[i] = items[i].isEmpty() ? OTHER : bucketOf(items[i].charAt(0));
+		}
+		return keys;
+	}
+
+	/** Returns the bucket of every entry, without creating Strings. */
+	public char[] keys(CompactStrings items) {
+		final char[] keys = new char[items.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = items.length(i) == 0 ? OTHER : bucketOf(items.charAt(i, 0));
+		}
+		return keys;
+	}
+
+	/** Returns the bucket of items starting with {@code c}. */
+	public char bucketOf(char c) {
+		final char bucket = mBuckets[c];
+		return bucket != UNKNOWN ? bucket : computeBucket(c);
+	}
+
+	// the collator is not thread safe, the cache itself only ever gets the same value written
+	private synchronized char computeBucket(char c) {
+		final String s = String.valueOf(c);
+		char bucket;
+		if (mHanBoundaries != null && c >= HAN_FIRST && c <= HAN_LAST) {
+			final int i = lastBoundaryNotAfter(mHanBoundaries, s);
+			bucket = i < 0 ? OTHER : PINYIN_LABELS.charAt(i);
+		} else if (Character.isLetter(c)) {
+			final int i = lastBoundaryNotAfter(mLatinBoundaries, s);
+			if (i < 0) {
+				bucket = OTHER;
+			} else if (i == mLatinBoundaries.length - 1 && mCollator.compare(s, mLatinBoundaries[i]) != 0) {
+				// sorts after Z in this locale, like Å in Swedish, so it is a bucket of its own
+				bucket = Character.toUpperCase(c);
+			} else {
+				bucket = LATIN_LABELS.charAt(i);
+			}
+		} else {
+			bucket = OTHER;
+		}
+		mBuckets[c] = bucket;
+		return bucket;
+	}
+
+	private int lastBoundaryNotAfter(String[] boundaries, String s) {
+		int low = 0;
+		int high = boundaries.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (mCollator.compare(boundaries[mid], s) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+}
@@ -0,0 +1,52 @@
+package com.anxpp.titlelistview.sectioning;
+
+/**
+ * The ids of one version of a data set, as compared by {@link SnapshotDiff}:
+ * a stable id per item, the header id of every item and a hash of what the
+ * row of every item shows.
+ *
+ * @author anxpp.com
+ */
+public final class Snapshot {
+
+	public static final Snapshot EMPTY = new Snapshot(new long[0], new long[0], new long[0]);
+
+	final long[] mItemIds;
+	final long[] mHeaderIds;
+	final long[] mContentHashes;
+
+	public Snapshot(long[] itemIds, long[] headerIds, long[] contentHashes) {
+		if (headerIds.length != itemIds.length || contentHashes.length != itemIds.length) {
+			throw new IllegalArgumentException("Expected " + itemIds.length + " header ids and content hashes");
+		}
+		mItemIds = itemIds;
+		mHeaderIds = headerIds;
+		mContentHashes = contentHashes;
+	}
+
+	public int size() {
+		return mItemIds.length;
+	}
+
+	public long getItemId(int position) {
+		return mItemIds[position];
+	}
+
+	public long getHeaderId(int position) {
+		return mHeaderIds[position];
+	}
+
+	/** Copies the header ids of {@code [from, to)} into {@code out}. */
+	public void getHeaderIds(int from, int to, long[] out) {
+		System.arraycopy(mHeaderIds, from, out, 0, to - from);
+	}
+
+	/** Builds the section index of the header ids. */
+	public SectionIndex buildSectionIndex() {
+		final SectionIndex sectionIndex = new SectionIndex();
+		for (long headerId : mHeaderIds) {
+			sectionIndex.append(headerId);
+		}
+		return sectionIndex;
+	}
+}
@@ -0,0 +1,317 @@
+package com.anxpp.titlelistview.sectioning;
+
+import java.util.Arrays;
+
+/**
+ * Turns one {@link Snapshot} into another as a script of removals, moves,
+ * insertions and changes, meant to be computed off the main thread and
+ * replayed as item range notifications.
+ * <p>
+ * Items are matched by their stable id. Removals come first, from the end
+ * of the list backwards. The matched items that are not part of the longest
+ * run already in the right order are then moved one by one, and last the new
+ * items are inserted and the matched items whose header id or content hash
+ * differ are reported as changed, all at their final positions. Every
+ * position is valid for the list as it is after the operations before it.
+ * <p>
+ * If the ids are not unique, or more than {@link #MAX_MOVES} items would have
+ * to move, the diff is a {@link #isReset() reset} and the data set should be
+ * treated as changed as a whole.
+ *
+ * @author anxpp.com
+ */
+public final class SnapshotDiff {
+
+	/** Receives the operations of a diff in order. */
+	public interface Callback {
+
+		void onRemoved(int position, int count);
+
+		/** Moves one item, {@code toPosition} counts without the moved item. */
+		void onMoved(int fromPosition, int toPosition);
+
+		void onInserted(int position, int count);
+
+		void onChanged(int position, int count);
+	}
+
+	/** Diffs needing more moves than this are resets, every move costs linear time. */
+	public static final int MAX_MOVES = 128;
+
+	private static final int REMOVE = 0;
+	private static final int MOVE = 1;
+	private static final int INSERT = 2;
+	private static final int CHANGE = 3;
+
+	private static final SnapshotDiff RESET = new SnapshotDiff(null, 0);
+
+	// three ints per operation: type, position, count or target position
+	private final int[] mOps;
+	private final int mOpCount;
+
+	private SnapshotDiff(int[] ops, int opCount) {
+		mOps = ops;
+		mOpCount = opCount;
+	}
+
+	public boolean isReset() {
+		return mOps == null;
+	}
+
+	public int getOperationCount() {
+		return mOpCount;
+	}
+
+	public void dispatchTo(Callback callback) {
+		if (isReset()) {
+			throw new IllegalStateException("A reset has no operations");
+		}
+		for (int i = 0; i < mOpCount * 3; i += 3) {
+			switch (mOps[i]) {
+				case REMOVE:
+					callback.onRemoved(mOps[i + 1], mOps[i + 2]);
+					break;
+				case MOVE:
+					callback.onMoved(mOps[i + 1], mOps[i + 2]);
+					break;
+				case INSERT:
+					callback.onInserted(mOps[i + 1], mOps[i + 2]);
+					break;
+				default:
+					callback.onChanged(mOps[i + 1], mOps[i + 2]);
+					break;
+			}
+		}
+	}
+
+	public static SnapshotDiff compute(Snapshot oldSnapshot, Snapshot newSnapshot) {
+		final int oldSize = oldSnapshot.size();
+		final int newSize = newSnapshot.size();
+		final LongIntMap oldPositions = new LongIntMap(oldSize);
+		for (int i = 0; i < oldSize; i++) {
+			if (!oldPositions.putIfAbsent(oldSnapshot.mItemIds[i], i)) {
+				return RESET;
+			}
+		}
+		final LongIntMap newPositions = new LongIntMap(newSize);
+		final int[] newToOld = new int[newSize];
+		final int[] oldToNew = new int[oldSize];
+		Arrays.fill(oldToNew, -1);
+		for (int j = 0; j < newSize; j++) {
+			final long id = newSnapshot.mItemIds[j];
+			if (!newPositions.putIfAbsent(id, j)) {
+				return RESET;
+			}
+			newToOld[j] = oldPositions.get(id);
+			if (newToOld[j] >= 0) {
+				oldToNew[newToOld[j]] = j;
+			}
+		}
+
+		final Builder ops = new Builder();
+
+		// removals, from the end so earlier positions stay valid
+		int commonCount = 0;
+		for (int i = oldSize - 1; i >= 0; ) {
+			if (oldToNew[i] >= 0) {
+				commonCount++;
+				i--;
+				continue;
+			}
+			int start = i;
+			while (start > 0 && oldToNew[start - 1] < 0) {
+				start--;
+			}
+			ops.add(REMOVE, start, i - start + 1);
+			i = start - 1;
+		}
+
+		// rank of every matched item in the new order, listed in the old order
+		final int[] ranks = new int[commonCount];
+		final int[] rankOfOld = new int[oldSize];
+		int rank = 0;
+		for (int j = 0; j < newSize; j++) {
+			if (newToOld[j] >= 0) {
+				rankOfOld[newToOld[j]] = rank++;
+			}
+		}
+		int k = 0;
+		for (int i = 0; i < oldSize; i++) {
+			if (oldToNew[i] >= 0) {
+				ranks[k++] = rankOfOld[i];
+			}
+		}
+		final boolean[] settled = longestIncreasingRun(ranks, commonCount);
+		int moveCount = 0;
+		for (int r = 0; r < commonCount; r++) {
+			if (!settled[r]) {
+				moveCount++;
+			}
+		}
+		if (moveCount > MAX_MOVES) {
+			return RESET;
+		}
+		if (moveCount > 0) {
+			addMoves(ops, ranks, settled);
+		}
+
+		// insertions and changes, at their final positions
+		for (int j = 0; j < newSize; ) {
+			if (newToOld[j] >= 0) {
+				j++;
+				continue;
+			}
+			int end = j;
+			while (end < newSize && newToOld[end] < 0) {
+				end++;
+			}
+			ops.add(INSERT, j, end - j);
+			j = end;
+		}
+		for (int j = 0; j < newSize; ) {
+			if (!isChanged(oldSnapshot, newSnapshot, newToOld, j)) {
+				j++;
+				continue;
+			}
+			int end = j;
+			while (end < newSize && isChanged(oldSnapshot, newSnapshot, newToOld, end)) {
+				end++;
+			}
+			ops.add(CHANGE, j, end - j);
+			j = end;
+		}
+		return new SnapshotDiff(ops.mOps, ops.mCount);
+	}
+
+	private static boolean isChanged(Snapshot oldSnapshot, Snapshot newSnapshot, int[] newToOld, int j) {
+		final int i = newToOld[j];
+		return i >= 0 && (oldSnapshot.mHeaderIds[i] != newSnapshot.mHeaderIds[j]
+				|| oldSnapshot.mContentHashes[i] != newSnapshot.mContentHashes[j]);
+	}
+
+	/**
+	 * Marks, by rank, the items of the longest increasing subsequence of
+	 * {@code ranks}. Those keep their place, all others are moved.
+	 */
+	private static boolean[] longestIncreasingRun(int[] ranks, int count) {
+		// tails[l] is the index of the smallest last rank of an increasing run of length l + 1
+		final int[] tails = new int[count];
+		final int[] previous = new int[count];
+		int length = 0;
+		for (int i = 0; i < count; i++) {
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (ranks[tails[mid]] < ranks[i]) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			previous[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == length) {
+				length++;
+			}
+		}
+		final boolean[] settled = new boolean[count];
+		for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+			settled[ranks[i]] = true;
+		}
+		return settled;
+	}
+
+	/**
+	 * Moves the unsettled items in rank order, each right behind the last
+	 * settled item of a lower rank, which settles it. Settled items are always
+	 * in rank order, so once all are settled the list is in the new order.
+	 */
+	private static void addMoves(Builder ops, int[] ranks, boolean[] settled) {
+		final int count = ranks.length;
+		final int[] current = Arrays.copyOf(ranks, count);
+		for (int r = 0; r < count; r++) {
+			if (settled[r]) {
+				continue;
+			}
+			int from = 0;
+			while (current[from] != r) {
+				from++;
+			}
+			System.arraycopy(current, from + 1, current, from, count - from - 1);
+			int to = 0;
+			for (int p = 0; p < count - 1; p++) {
+				if (settled[current[p]] && current[p] < r) {
+					to = p + 1;
+				}
+			}
+			System.arraycopy(current, to, current, to + 1, count - to - 1);
+			current[to] = r;
+			settled[r] = true;
+			ops.add(MOVE, from, to);
+		}
+	}
+
+	private static final class Builder {
+
+		int[] mOps = new int[48];
+		int mCount;
+
+		void add(int type, int a, int b) {
+			if (mCount * 3 + 3 > mOps.length) {
+				mOps = Arrays.copyOf(mOps, mOps.length * 2);
+			}
+			mOps[mCount * 3] = type;
+			mOps[mCount * 3 + 1] = a;
+			mOps[mCount * 3 + 2] = b;
+			mCount++;
+		}
+	}
+
+	/** Open addressing map from item id to position, so ids are not boxed. */
+	private static final class LongIntMap {
+
+		private final long[] mKeys;
+		private final int[] mValues;
+		private final boolean[] mUsed;
+		private final int mMask;
+
+		LongIntMap(int expectedSize) {
+			int capacity = 2;
+			while (capacity < expectedSize * 2) {
+				capacity <<= 1;
+			}
+			mKeys = new long[capacity];
+			mValues = new int[capacity];
+			mUsed = new boolean[capacity];
+			mMask = capacity - 1;
+		}
+
+		private int slot(long key) {
+			long hash = key * 0x9E3779B97F4A7C15L;
+			int slot = (int) (hash ^ (hash >>> 32)) & mMask;
+			while (mUsed[slot] && mKeys[slot] != key) {
+				slot = (slot + 1) & mMask;
+			}
+			return slot;
+		}
+
+		/** Returns {@code false} if the key was already present. */
+		boolean putIfAbsent(long key, int value) {
+			final int slot = slot(key);
+			if (mUsed[slot]) {
+				return false;
+			}
+			mUsed[slot] = true;
+			mKeys[slot] = key;
+			mValues[slot] = value;
+			return true;
+		}
+
+		/** Returns the value of {@code key}, or -1. */
+		int get(long key) {
+			final int slot = slot(key);
+			return mUsed[slot] ? mValues[slot] : -1;
+		}
+	}
+}
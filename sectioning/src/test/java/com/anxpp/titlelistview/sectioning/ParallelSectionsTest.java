@@ -0,0 +1,69 @@
+package com.anxpp.titlelistview.sectioning;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class ParallelSectionsTest {
+
+	private static ForkJoinPool sPool;
+
+	@BeforeClass
+	public static void createPool() {
+		// more than one worker, so the keys are split even on a single core
+		sPool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void shutdownPool() {
+		sPool.shutdown();
+	}
+
+	@Test
+	public void matchesTheSequentialScan() {
+		final Random random = new Random(7);
+		final int[] lengths = {0, 1, 1000, ParallelSections.PARALLEL_THRESHOLD - 1,
+				ParallelSections.PARALLEL_THRESHOLD, ParallelSections.PARALLEL_THRESHOLD * 3 + 17};
+		final int[] runLengths = {1, 3, 40, 1 << 15};
+		for (int length : lengths) {
+			for (int runLength : runLengths) {
+				final char[] keys = keys(random, length, runLength);
+				assertArrayEquals("length " + length + ", runs of about " + runLength,
+						InitialSections.sectionStarts(keys), ParallelSections.sectionStarts(keys, sPool));
+			}
+		}
+	}
+
+	@Test
+	public void sectionsSpanningChunkBoundaries() {
+		// a single section, and sections changing right at every possible chunk start
+		final char[] same = new char[ParallelSections.PARALLEL_THRESHOLD * 2];
+		Arrays.fill(same, 'A');
+		assertArrayEquals(InitialSections.sectionStarts(same), ParallelSections.sectionStarts(same, sPool));
+		final char[] alternating = new char[ParallelSections.PARALLEL_THRESHOLD * 2];
+		for (int i = 0; i < alternating.length; i++) {
+			alternating[i] = (char) ('A' + i % 2);
+		}
+		assertArrayEquals(InitialSections.sectionStarts(alternating),
+				ParallelSections.sectionStarts(alternating, sPool));
+	}
+
+	// sorted keys, as the adapters produce them, with runs of random length
+	private static char[] keys(Random random, int length, int runLength) {
+		final char[] keys = new char[length];
+		char key = 'A';
+		for (int i = 0; i < length; i++) {
+			if (random.nextInt(runLength) == 0) {
+				key++;
+			}
+			keys[i] = key;
+		}
+		return keys;
+	}
+}
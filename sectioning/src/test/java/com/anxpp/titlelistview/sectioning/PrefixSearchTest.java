@@ -0,0 +1,80 @@
+package com.anxpp.titlelistview.sectioning;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrefixSearchTest {
+
+	private static final String ALPHABET = "abcABCéÉ ";
+
+	@Test
+	public void matchesStartsWithWhileTyping() {
+		final Random random = new Random(3);
+		for (int iteration = 0; iteration < 300; iteration++) {
+			final String[] items = new String[random.nextInt(60)];
+			for (int i = 0; i < items.length; i++) {
+				items[i] = word(random, 5);
+			}
+			if (random.nextBoolean()) {
+				Arrays.sort(items, String.CASE_INSENSITIVE_ORDER);
+			}
+			final PrefixSearch search = new PrefixSearch(CompactStrings.of(items));
+			String prefix = "";
+			for (int step = 0; step < 12; step++) {
+				// type a character or delete a few, as the filter box does
+				if (prefix.isEmpty() || random.nextInt(3) > 0) {
+					prefix += ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+				} else {
+					prefix = prefix.substring(0, random.nextInt(prefix.length()));
+				}
+				search.setPrefix(prefix);
+				assertEquals("prefix " + prefix, expected(items, prefix), matches(search));
+			}
+		}
+	}
+
+	@Test
+	public void itemOrderIsDetected() {
+		assertTrue(new PrefixSearch(CompactStrings.of(new String[]{"apple", "Banana", "cherry"})).isInItemOrder());
+		final PrefixSearch search = new PrefixSearch(CompactStrings.of(new String[]{"cherry", "apple", "Banana"}));
+		search.setPrefix("B");
+		assertEquals(1, search.getEnd() - search.getStart());
+		assertEquals(2, search.itemAt(search.getStart()));
+	}
+
+	private static String word(Random random, int maxLength) {
+		final StringBuilder word = new StringBuilder();
+		final int length = random.nextInt(maxLength + 1);
+		for (int i = 0; i < length; i++) {
+			word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		}
+		return word.toString();
+	}
+
+	private static List<Integer> expected(String[] items, String prefix) {
+		final List<Integer> matches = new ArrayList<>();
+		for (int i = 0; i < items.length; i++) {
+			if (items[i].regionMatches(true, 0, prefix, 0, prefix.length())) {
+				matches.add(i);
+			}
+		}
+		return matches;
+	}
+
+	private static List<Integer> matches(PrefixSearch search) {
+		final List<Integer> matches = new ArrayList<>();
+		for (int rank = search.getStart(); rank < search.getEnd(); rank++) {
+			matches.add(search.itemAt(rank));
+		}
+		Collections.sort(matches);
+		return matches;
+	}
+}
@@ -0,0 +1,147 @@
+package com.anxpp.titlelistview.sectioning;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RowHeightsTest {
+
+	@Test
+	public void unmeasuredRowsCountWithTheAverage() {
+		final RowHeights heights = new RowHeights(4, 10);
+		assertEquals(40, heights.getTotalHeight());
+		heights.setHeight(0, 20);
+		heights.setHeight(1, 40);
+		// two measured rows average 30, the other two are estimated at that
+		assertEquals(30, heights.getEstimate());
+		assertEquals(60, heights.getOffset(2));
+		assertEquals(120, heights.getTotalHeight());
+		assertEquals(1, heights.getPositionForOffset(20));
+		assertEquals(3, heights.getPositionForOffset(1000));
+	}
+
+	@Test
+	public void zeroHeightRowsNeverCoverAnOffset() {
+		final RowHeights heights = new RowHeights(3, 10);
+		heights.setHeight(0, 0);
+		heights.setHeight(1, 5);
+		heights.setHeight(2, 0);
+		assertEquals(1, heights.getPositionForOffset(0));
+		assertEquals(1, heights.getPositionForOffset(4));
+	}
+
+	@Test
+	public void moveKeepsTheHeightsWithTheirRows() {
+		final RowHeights heights = new RowHeights(5, 0);
+		for (int i = 0; i < 5; i++) {
+			heights.setHeight(i, i + 1);
+		}
+		// 1 2 3 4 5 -> 3 4 1 2 5
+		heights.move(0, 2, 2);
+		assertEquals(3, heights.getHeight(0));
+		assertEquals(1, heights.getHeight(2));
+		assertEquals(7, heights.getOffset(2));
+		assertEquals(2, heights.getPositionForOffset(7));
+	}
+
+	@Test
+	public void matchesAListOfHeightsThroughRandomChanges() {
+		final Random random = new Random(1);
+		for (int iteration = 0; iteration < 2000; iteration++) {
+			final int count = random.nextInt(50);
+			final RowHeights heights = new RowHeights(count, random.nextInt(30));
+			final List<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				expected.add(RowHeights.UNKNOWN);
+			}
+			for (int op = 0; op < 60; op++) {
+				apply(random, heights, expected);
+				// several changes in a row before the trees are queried again
+				if (random.nextInt(3) == 0) {
+					check(heights, expected);
+				}
+			}
+			check(heights, expected);
+		}
+	}
+
+	private static void apply(Random random, RowHeights heights, List<Integer> expected) {
+		final int count = expected.size();
+		switch (random.nextInt(4)) {
+			case 0:
+				if (count > 0) {
+					final int position = random.nextInt(count);
+					final int height = random.nextInt(5) == 0 ? RowHeights.UNKNOWN : random.nextInt(100);
+					heights.setHeight(position, height);
+					expected.set(position, height);
+				}
+				break;
+			case 1: {
+				final int start = random.nextInt(count + 1);
+				final int removed = random.nextInt(count - start + 1);
+				final int inserted = random.nextInt(4);
+				heights.replace(start, removed, inserted);
+				for (int i = 0; i < removed; i++) {
+					expected.remove(start);
+				}
+				for (int i = 0; i < inserted; i++) {
+					expected.add(start, RowHeights.UNKNOWN);
+				}
+				break;
+			}
+			case 2:
+				if (count > 0) {
+					final int moved = random.nextInt(count) + 1;
+					final int from = random.nextInt(count - moved + 1);
+					final int to = random.nextInt(count - moved + 1);
+					heights.move(from, to, moved);
+					final List<Integer> rows = new ArrayList<>(expected.subList(from, from + moved));
+					expected.subList(from, from + moved).clear();
+					expected.addAll(to, rows);
+				}
+				break;
+			default: {
+				final int start = random.nextInt(count + 1);
+				final int changed = random.nextInt(count - start + 1);
+				heights.replace(start, changed, changed);
+				for (int i = start; i < start + changed; i++) {
+					expected.set(i, RowHeights.UNKNOWN);
+				}
+				break;
+			}
+		}
+	}
+
+	private static void check(RowHeights heights, List<Integer> expected) {
+		final int count = expected.size();
+		assertEquals(count, heights.getCount());
+		long sum = 0;
+		int measured = 0;
+		for (int height : expected) {
+			if (height != RowHeights.UNKNOWN) {
+				sum += height;
+				measured++;
+			}
+		}
+		final int estimate = measured > 0 ? (int) (sum / measured) : heights.getDefaultEstimate();
+		long offset = 0;
+		for (int position = 0; position <= count; position++) {
+			assertEquals(offset, heights.getOffset(position));
+			if (position == count) {
+				break;
+			}
+			final int height = expected.get(position) != RowHeights.UNKNOWN ? expected.get(position) : estimate;
+			assertEquals(height, heights.getHeight(position));
+			if (height > 0) {
+				assertEquals(position, heights.getPositionForOffset(offset));
+				assertEquals(position, heights.getPositionForOffset(offset + height - 1));
+			}
+			offset += height;
+		}
+		assertEquals(offset, heights.getTotalHeight());
+	}
+}
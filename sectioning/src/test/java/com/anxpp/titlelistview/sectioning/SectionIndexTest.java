@@ -0,0 +1,88 @@
+package com.anxpp.titlelistview.sectioning;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class SectionIndexTest {
+
+	@Test
+	public void replaceMergesWithTheNeighbouringSections() {
+		final SectionIndex index = build(1, 1, 2, 2, 3);
+		// 1 1 [2 2] 3 -> 1 1 1 3 3
+		index.replace(2, 2, new long[]{1, 3}, 2);
+		assertEquals(2, index.getSectionCount());
+		assertEquals(0, index.getPositionForSection(0));
+		assertEquals(3, index.getPositionForSection(1));
+		assertEquals(5, index.getItemCount());
+	}
+
+	@Test
+	public void removingASectionJoinsTheSectionsAroundIt() {
+		final SectionIndex index = build(1, 2, 2, 1);
+		index.replace(1, 2, new long[0], 0);
+		assertEquals(1, index.getSectionCount());
+		assertEquals(2, index.getItemCount());
+		assertEquals(1, index.getHeaderId(1));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void replacingPastTheEndThrows() {
+		build(1, 2).replace(1, 2, new long[0], 0);
+	}
+
+	@Test
+	public void replaceMatchesARebuildThroughRandomChanges() {
+		final Random random = new Random(3);
+		for (int iteration = 0; iteration < 2000; iteration++) {
+			final List<Long> headerIds = new ArrayList<>();
+			final SectionIndex index = new SectionIndex();
+			for (int op = 0; op < 40; op++) {
+				final int count = headerIds.size();
+				final int start = random.nextInt(count + 1);
+				final int removed = random.nextInt(Math.min(count - start, 6) + 1);
+				final int inserted = random.nextInt(6);
+				final long[] insertedIds = new long[inserted + random.nextInt(3)];
+				for (int i = 0; i < insertedIds.length; i++) {
+					// few distinct ids, so new rows often join the sections around them
+					insertedIds[i] = random.nextInt(3);
+				}
+				index.replace(start, removed, insertedIds, inserted);
+				headerIds.subList(start, start + removed).clear();
+				for (int i = 0; i < inserted; i++) {
+					headerIds.add(start + i, insertedIds[i]);
+				}
+				check(index, headerIds);
+			}
+		}
+	}
+
+	private static SectionIndex build(long... headerIds) {
+		final SectionIndex index = new SectionIndex();
+		for (long headerId : headerIds) {
+			index.append(headerId);
+		}
+		return index;
+	}
+
+	private static void check(SectionIndex index, List<Long> headerIds) {
+		final SectionIndex expected = new SectionIndex();
+		for (long headerId : headerIds) {
+			expected.append(headerId);
+		}
+		assertEquals(expected.getItemCount(), index.getItemCount());
+		assertEquals(expected.getSectionCount(), index.getSectionCount());
+		for (int section = 0; section < expected.getSectionCount(); section++) {
+			assertEquals(expected.getPositionForSection(section), index.getPositionForSection(section));
+			assertEquals(expected.getHeaderIdForSection(section), index.getHeaderIdForSection(section));
+		}
+		for (int position = 0; position < headerIds.size(); position++) {
+			assertEquals((long) headerIds.get(position), index.getHeaderId(position));
+			assertEquals(expected.isSectionStart(position), index.isSectionStart(position));
+		}
+	}
+}
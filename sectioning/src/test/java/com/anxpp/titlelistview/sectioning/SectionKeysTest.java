@@ -0,0 +1,85 @@
+package com.anxpp.titlelistview.sectioning;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.text.Collator;
+import java.text.ParseException;
+import java.text.RuleBasedCollator;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class SectionKeysTest {
+
+	// characters in the pinyin order of ICU, each followed by its initial. Every
+	// boundary comes right after a character of the previous initial and is
+	// followed by characters that used to be taken for the first of the initial
+	private static final String PINYIN_ORDER = "阿A凹A八B芭B簿B嚓C擦C错C哒D搭D跺D妸E婀E蛾E贰E"
+			+ "发F缚F旮G噶G过G哈H货H讥J击J骏J咔K喀K阔K垃L落L痳M妈M穆M拏N拿N诺N"
+			+ "噢O哦O沤O妑P啪P瀑P七Q期Q群Q呥R然R若R扨S撒S所S它T塌T拓T穵W挖W沃W"
+			+ "夕X昔X迅X丫Y压Y韵Y帀Z匝Z座Z";
+
+	/**
+	 * The Chinese collation of the JDK puts the GB2312 characters in pinyin order
+	 * before all others, so a rule based collator stands in for the order of ICU.
+	 */
+	private static SectionKeys pinyinKeys() throws ParseException {
+		final StringBuilder rules = new StringBuilder();
+		for (int i = 0; i < PINYIN_ORDER.length(); i += 2) {
+			rules.append(" < ").append(PINYIN_ORDER.charAt(i));
+		}
+		return SectionKeys.pinyin(new RuleBasedCollator(rules.toString()));
+	}
+
+	@Test
+	public void everyBoundaryAndItsPredecessorArePinned() throws ParseException {
+		final SectionKeys keys = pinyinKeys();
+		for (int i = 0; i < PINYIN_ORDER.length(); i += 2) {
+			final char c = PINYIN_ORDER.charAt(i);
+			assertEquals("bucket of " + c, PINYIN_ORDER.charAt(i + 1), keys.bucketOf(c));
+		}
+	}
+
+	@Test
+	public void boundariesAreInPinyinOrder() throws ParseException {
+		final SectionKeys keys = pinyinKeys();
+		for (int i = 0; i < SectionKeys.PINYIN_BOUNDARIES.length(); i++) {
+			final char boundary = SectionKeys.PINYIN_BOUNDARIES.charAt(i);
+			final int at = PINYIN_ORDER.indexOf(boundary);
+			assertEquals(SectionKeys.PINYIN_LABELS.charAt(i), keys.bucketOf(boundary));
+			if (i > 0) {
+				// the character sorting right before a boundary has the previous initial
+				assertEquals(SectionKeys.PINYIN_LABELS.charAt(i - 1), PINYIN_ORDER.charAt(at - 1));
+			}
+		}
+	}
+
+	@Test
+	public void platformCollationBucketsRareInitials() {
+		final Collator collator = Collator.getInstance(Locale.CHINA);
+		collator.setStrength(Collator.PRIMARY);
+		// only an ICU backed collator, as on Android, sorts the boundaries in order
+		for (int i = 1; i < SectionKeys.PINYIN_BOUNDARIES.length(); i++) {
+			Assume.assumeTrue(collator.compare(
+					String.valueOf(SectionKeys.PINYIN_BOUNDARIES.charAt(i - 1)),
+					String.valueOf(SectionKeys.PINYIN_BOUNDARIES.charAt(i))) < 0);
+		}
+		final SectionKeys keys = SectionKeys.pinyin();
+		assertEquals('C', keys.bucketOf('嚓'));
+		assertEquals('D', keys.bucketOf('哒'));
+		assertEquals('E', keys.bucketOf('婀'));
+		assertEquals('E', keys.bucketOf('妸'));
+		assertEquals('O', keys.bucketOf('噢'));
+		assertEquals('T', keys.bucketOf('它'));
+	}
+
+	@Test
+	public void lettersAreBucketedCaseAndAccentInsensitive() {
+		final SectionKeys keys = SectionKeys.forLocale(Locale.US);
+		assertEquals('A', keys.bucketOf('a'));
+		assertEquals('E', keys.bucketOf('é'));
+		assertEquals('Z', keys.bucketOf('Z'));
+		assertEquals(SectionKeys.OTHER, keys.bucketOf('7'));
+	}
+}
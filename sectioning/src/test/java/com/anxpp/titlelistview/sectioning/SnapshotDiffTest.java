@@ -0,0 +1,148 @@
+package com.anxpp.titlelistview.sectioning;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotDiffTest {
+
+	// stands for a row the replay inserted, its id is only known from the new snapshot
+	private static final long INSERTED = Long.MIN_VALUE;
+
+	@Test
+	public void replayTurnsTheOldListIntoTheNewOne() {
+		final Random random = new Random(5);
+		int resets = 0;
+		for (int iteration = 0; iteration < 3000; iteration++) {
+			final Snapshot oldSnapshot = randomSnapshot(random);
+			final Snapshot newSnapshot = edit(random, oldSnapshot);
+			final SnapshotDiff diff = SnapshotDiff.compute(oldSnapshot, newSnapshot);
+			if (diff.isReset()) {
+				resets++;
+				continue;
+			}
+			replay(oldSnapshot, newSnapshot, diff);
+		}
+		// only diffs with more than MAX_MOVES moves are resets, the edits make few of them
+		assertTrue("resets: " + resets, resets < 300);
+	}
+
+	@Test
+	public void duplicateIdsAreAReset() {
+		final Snapshot duplicates = new Snapshot(new long[]{1, 1}, new long[2], new long[2]);
+		assertTrue(SnapshotDiff.compute(duplicates, Snapshot.EMPTY).isReset());
+	}
+
+	@Test
+	public void equalSnapshotsHaveNoOperations() {
+		final Snapshot snapshot = new Snapshot(new long[]{1, 2, 3}, new long[]{0, 0, 1}, new long[3]);
+		final SnapshotDiff diff = SnapshotDiff.compute(snapshot, snapshot);
+		assertFalse(diff.isReset());
+		assertEquals(0, diff.getOperationCount());
+	}
+
+	private static void replay(Snapshot oldSnapshot, final Snapshot newSnapshot, SnapshotDiff diff) {
+		final List<Long> rows = new ArrayList<>();
+		final Map<Long, Integer> oldPositions = new HashMap<>();
+		for (int i = 0; i < oldSnapshot.size(); i++) {
+			rows.add(oldSnapshot.getItemId(i));
+			oldPositions.put(oldSnapshot.getItemId(i), i);
+		}
+		final boolean[] changed = new boolean[newSnapshot.size()];
+		diff.dispatchTo(new SnapshotDiff.Callback() {
+			@Override
+			public void onRemoved(int position, int count) {
+				rows.subList(position, position + count).clear();
+			}
+
+			@Override
+			public void onMoved(int fromPosition, int toPosition) {
+				rows.add(toPosition, rows.remove(fromPosition));
+			}
+
+			@Override
+			public void onInserted(int position, int count) {
+				rows.addAll(position, Collections.nCopies(count, INSERTED));
+			}
+
+			@Override
+			public void onChanged(int position, int count) {
+				assertEquals("changes come at the final positions", newSnapshot.size(), rows.size());
+				for (int i = position; i < position + count; i++) {
+					changed[i] = true;
+				}
+			}
+		});
+
+		assertEquals(newSnapshot.size(), rows.size());
+		for (int j = 0; j < rows.size(); j++) {
+			final long id = newSnapshot.getItemId(j);
+			final Integer oldPosition = oldPositions.get(id);
+			if (rows.get(j) == INSERTED) {
+				assertTrue("inserted an item that was already there", oldPosition == null);
+				continue;
+			}
+			assertEquals("item at " + j, id, (long) rows.get(j));
+			final boolean rowDiffers = oldSnapshot.getHeaderId(oldPosition) != newSnapshot.getHeaderId(j)
+					|| oldSnapshot.mContentHashes[oldPosition] != newSnapshot.mContentHashes[j];
+			if (rowDiffers) {
+				assertTrue("changed row " + j + " not reported", changed[j]);
+			}
+		}
+	}
+
+	private static Snapshot randomSnapshot(Random random) {
+		final int size = random.nextInt(40);
+		final long[] ids = new long[size];
+		final long[] headerIds = new long[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = i * 3;
+			headerIds[i] = i / 5;
+		}
+		return new Snapshot(ids, headerIds, new long[size]);
+	}
+
+	// removes, moves, inserts and changes a few items of the old snapshot
+	private static Snapshot edit(Random random, Snapshot oldSnapshot) {
+		final List<long[]> rows = new ArrayList<>();
+		for (int i = 0; i < oldSnapshot.size(); i++) {
+			rows.add(new long[]{oldSnapshot.getItemId(i), oldSnapshot.getHeaderId(i), 0});
+		}
+		final int edits = random.nextInt(8);
+		long nextId = 1;
+		for (int e = 0; e < edits; e++) {
+			final int kind = random.nextInt(4);
+			if (rows.isEmpty() || kind == 0) {
+				// ids not divisible by 3 were never in the old snapshot
+				rows.add(random.nextInt(rows.size() + 1), new long[]{nextId++ * 3 + 1, random.nextInt(8), 0});
+				continue;
+			}
+			final int position = random.nextInt(rows.size());
+			if (kind == 1) {
+				rows.remove(position);
+			} else if (kind == 2) {
+				rows.add(random.nextInt(rows.size()), rows.remove(position));
+			} else {
+				rows.get(position)[random.nextBoolean() ? 1 : 2] += 1;
+			}
+		}
+		final long[] ids = new long[rows.size()];
+		final long[] headerIds = new long[rows.size()];
+		final long[] hashes = new long[rows.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = rows.get(i)[0];
+			headerIds[i] = rows.get(i)[1];
+			hashes[i] = rows.get(i)[2];
+		}
+		return new Snapshot(ids, headerIds, hashes);
+	}
+}